@@ -0,0 +1,117 @@
+/*
+ * ChunkedBufferMatrix.java
+ *
+ * A heapen kívül tárolt költségmátrixok közös része.
+ */
+
+package com.dtw;
+
+import java.nio.DoubleBuffer;
+
+
+// A cost matrix that stores the cells of the search window outside of the Java heap, in DoubleBuffers of at most
+//    2^27 doubles (1 GB) each.  The cells are laid out column by column, the same way as in a MemoryResidentMatrix,
+//    but with long offsets, so the window may have more than 2^31 cells.  Subclasses provide the buffers.
+abstract class ChunkedBufferMatrix implements CostMatrix
+{
+   // CONSTANTS
+   private static final double OUT_OF_WINDOW_VALUE = Double.POSITIVE_INFINITY;
+   static final int CHUNK_SHIFT = 27;
+   static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+   private static final long CHUNK_MASK = CHUNK_SIZE - 1;
+
+
+   // PRIVATE DATA
+   private final SearchWindow window;
+   private final long[] colOffsets;
+   private final long size;
+   private DoubleBuffer[] chunks;
+
+
+   // CONSTRUCTOR
+   ChunkedBufferMatrix(SearchWindow searchWindow)
+   {
+      window = searchWindow;
+      colOffsets = new long[window.maxI()+1];
+
+      // Fill in the offset matrix
+      long currentOffset = 0;
+      for (int i=window.minI(); i<=window.maxI(); i++)
+      {
+         colOffsets[i] = currentOffset;
+         currentOffset += window.maxJforI(i)-window.minJforI(i)+1;
+      }
+      size = currentOffset;
+   }  // end Constructor
+
+
+   // Called by the constructor of the subclass, the lengths of the chunks are given by chunkLength(..).
+   final void setChunks(DoubleBuffer[] chunks)
+   {
+      this.chunks = chunks;
+   }
+
+
+   final int numOfChunks()
+   {
+      return (int)((size+CHUNK_MASK) >>> CHUNK_SHIFT);
+   }
+
+
+   // The number of doubles in chunk c.
+   final int chunkLength(int c)
+   {
+      return (int)Math.min(size-((long)c << CHUNK_SHIFT), CHUNK_SIZE);
+   }
+
+
+
+   // PUBLIC FUNCTIONS
+   public void put(int col, int row, double value)
+   {
+      if ((row<window.minJforI(col)) || (row>window.maxJforI(col)))
+      {
+         throw new InternalError("CostMatrix is filled in a cell (col="+col+", row="+row+") that is not in the "+
+                                 "search window");
+      }
+      else
+      {
+         final long index = colOffsets[col]+row-window.minJforI(col);
+         chunk(index).put((int)(index & CHUNK_MASK), value);
+      }
+   }
+
+
+   public double get(int col, int row)
+   {
+      if ((row<window.minJforI(col)) || (row>window.maxJforI(col)))
+         return OUT_OF_WINDOW_VALUE;
+      else
+      {
+         final long index = colOffsets[col]+row-window.minJforI(col);
+         return chunk(index).get((int)(index & CHUNK_MASK));
+      }
+   }
+
+
+   public int size()
+   {
+      return window.size();
+   }
+
+
+   // Releases the buffers (they are freed when they are garbage collected), the matrix cannot be used after this.
+   public void freeMem()
+   {
+      chunks = null;
+   }
+
+
+   private DoubleBuffer chunk(long index)
+   {
+      if (chunks == null)
+         throw new InternalError("The cost matrix has been freed by the freeMem() method");
+      return chunks[(int)(index >>> CHUNK_SHIFT)];
+   }
+
+}  // end class ChunkedBufferMatrix
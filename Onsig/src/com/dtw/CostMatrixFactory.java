@@ -0,0 +1,172 @@
+/*
+ * CostMatrixFactory.java
+ *
+ * A költségmátrix tárolási módjának kiválasztása a keresési ablak mérete alapján.
+ */
+
+package com.dtw;
+
+
+/**
+ * Kiválasztja, hogyan tárolják az ablakkal korlátozott DTW algoritmusok a költségmátrixot. Ha nincs
+ * szükség az illesztési útvonalra, csak két oszlopot tárolunk (PARTIAL). Egyébként a teljes ablak
+ * költségeit a heapen (RESIDENT), ha az nem fér bele a heap keretébe, akkor a heapen kívül
+ * (OFF_HEAP), ha pedig az sem fér bele a saját keretébe, akkor memóriába leképezett ideiglenes
+ * fájlban (MAPPED) tároljuk. A döntés a mátrix létrehozása előtt születik, és a beállított
+ * figyelő (Listener) értesül róla.
+ * <p>
+ * Az alapértelmezett keretek a "com.dtw.heapBudget" és a "com.dtw.offHeapBudget" rendszerjellemzőkkel
+ * (bájtban) állíthatók, ezek hiányában a legnagyobb heapméret negyede, illetve fele.
+ */
+public class CostMatrixFactory
+{
+   /**
+    * A költségmátrix tárolási módjai.
+    */
+   public enum Kind
+   {
+      /** Csak az utolsó két oszlop, a heapen. */
+      PARTIAL,
+      /** A teljes ablak a heapen. */
+      RESIDENT,
+      /** A teljes ablak a heapen kívüli (direct) memóriában. */
+      OFF_HEAP,
+      /** A teljes ablak memóriába leképezett ideiglenes fájlban. */
+      MAPPED
+   }
+
+
+   /**
+    * A kiválasztott tárolási módról értesülő figyelő (pl. statisztikák gyűjtéséhez). Több szálból is hívódhat.
+    */
+   public interface Listener
+   {
+      /**
+       * @param kind a kiválasztott tárolási mód
+       * @param cells az ablak celláinak száma
+       */
+      void costMatrixSelected(Kind kind, long cells);
+   }
+
+
+   // CONSTANTS
+   private static final int BYTES_PER_CELL = 8;
+   private static final long MAX_RESIDENT_CELLS = Integer.MAX_VALUE-8;   // the largest double[] of most JVMs
+
+
+   // PRIVATE DATA
+   private static volatile CostMatrixFactory defaultFactory = new CostMatrixFactory();
+
+   private final long heapBudget;
+   private final long offHeapBudget;
+   private volatile Listener listener;
+
+
+   // CONSTRUCTORS
+   /**
+    * Létrehoz egy választót az alapértelmezett keretekkel.
+    */
+   public CostMatrixFactory()
+   {
+      this(Long.getLong("com.dtw.heapBudget", Runtime.getRuntime().maxMemory()/4).longValue(),
+           Long.getLong("com.dtw.offHeapBudget", Runtime.getRuntime().maxMemory()/2).longValue());
+   }
+
+
+   /**
+    * Létrehoz egy választót a megadott keretekkel.
+    * @param heapBudget a heapen tárolt mátrix legnagyobb mérete bájtban
+    * @param offHeapBudget a heapen kívül tárolt mátrix legnagyobb mérete bájtban
+    */
+   public CostMatrixFactory(long heapBudget, long offHeapBudget)
+   {
+      this.heapBudget = heapBudget;
+      this.offHeapBudget = offHeapBudget;
+   }
+
+
+   // FUNCTIONS
+   /**
+    * A DTW algoritmusok által használt választó.
+    * @return az alapértelmezett választó
+    */
+   public static CostMatrixFactory getDefault()
+   {
+      return defaultFactory;
+   }
+
+
+   /**
+    * Beállítja a DTW algoritmusok által használt választót.
+    * @param factory az új választó
+    */
+   public static void setDefault(CostMatrixFactory factory)
+   {
+      if (factory == null)
+         throw new NullPointerException();
+      defaultFactory = factory;
+   }
+
+
+   /**
+    * Beállítja a kiválasztásokról értesülő figyelőt.
+    * @param listener a figyelő, vagy null
+    */
+   public void setListener(Listener listener)
+   {
+      this.listener = listener;
+   }
+
+
+   public long getHeapBudget()
+   {
+      return heapBudget;
+   }
+
+
+   public long getOffHeapBudget()
+   {
+      return offHeapBudget;
+   }
+
+
+   /**
+    * Kiválasztja a tárolási módot.
+    * @param cells az ablak celláinak száma
+    * @param wholeMatrix szükség van-e a teljes mátrixra (az útvonal visszakereséséhez)
+    * @return a tárolási mód
+    */
+   public Kind selectKind(long cells, boolean wholeMatrix)
+   {
+      final long bytes = BYTES_PER_CELL*cells;
+      if (!wholeMatrix)
+         return Kind.PARTIAL;
+      else if ( (bytes<=heapBudget) && (cells<=MAX_RESIDENT_CELLS) )
+         return Kind.RESIDENT;
+      else if (bytes <= offHeapBudget)
+         return Kind.OFF_HEAP;
+      else
+         return Kind.MAPPED;
+   }  // end selectKind(..)
+
+
+   // Creates the cost matrix of a search window.  A memory resident matrix is taken from the workspace of the thread
+   //    (see WarpWorkspace), so it has to be freed by WindowMatrix.freeMem().
+   CostMatrix create(SearchWindow window, boolean wholeMatrix)
+   {
+      final Kind kind = selectKind(window.size(), wholeMatrix);
+
+      final Listener currentListener = listener;
+      if (currentListener != null)
+         currentListener.costMatrixSelected(kind, window.size());
+
+      switch (kind)
+      {
+         case PARTIAL:  return new PartialWindowMatrix(window);
+         case RESIDENT: return WarpWorkspace.current().acquireMatrix(window);
+         case OFF_HEAP: return new OffHeapMatrix(window);
+         default:       return new MappedFileMatrix(window);
+      }  // end switch
+   }  // end create(..)
+
+}  // end class CostMatrixFactory
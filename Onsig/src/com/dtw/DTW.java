@@ -8,9 +8,6 @@
 package com.dtw;
 
 import com.timeseries.TimeSeries;
-import com.matrix.ColMajorCell;
-
-import java.util.Iterator;
 
 
 public class DTW
@@ -35,13 +32,22 @@ public class DTW
    // Dynamic Time Warping where the warp path is not needed, an alternate implementation can be used that does not
    //    require the entire cost matrix to be filled and only needs 2 columns to be stored at any one time.
    public static double getWarpDistBetween(TimeSeries tsI, TimeSeries tsJ)
+   {
+      return getWarpDistBetween(tsI, tsJ, Double.POSITIVE_INFINITY);
+   }
+
+
+   // Same as getWarpDistBetween(tsI, tsJ), but the calculation is abandoned as soon as the minimum of a column
+   //    exceeds 'cutoff'.  Every warp path crosses every column and the local costs are never negative, so the
+   //    warp distance is then known to be larger than 'cutoff' and Double.POSITIVE_INFINITY is returned.
+   public static double getWarpDistBetween(TimeSeries tsI, TimeSeries tsJ, double cutoff)
    {
       // The space complexity is 2*tsJ.size().  Dynamic time warping is symmetric so switching the two time series
       //    parameters does not effect the final warp cost but can reduce the space complexity by allowing tsJ to
       //    be set as the shorter time series and only requiring 2 columns of size |tsJ| rather than 2 larger columns of
       //    size |tsI|.
       if (tsI.size() < tsJ.size())
-         return getWarpDistBetween(tsJ, tsI);
+         return getWarpDistBetween(tsJ, tsI, cutoff);
 
 
       double[] lastCol = new double[tsJ.size()];
@@ -54,6 +60,10 @@ public class DTW
       for (int j=1; j<=maxJ; j++)  // the rest of the first column
          currCol[j] = currCol[j-1] + euclideanDist(tsI.getMeasurementVector(0), tsJ.getMeasurementVector(j));
 
+      // The first column is increasing, its minimum is the bottom cell.
+      if (currCol[0] > cutoff)
+         return Double.POSITIVE_INFINITY;
+
       for (int i=1; i<=maxI; i++)   // i = columns
       {
          // Swap the references between the two arrays.
@@ -64,17 +74,22 @@ public class DTW
          // Calculate the value for the bottom row of the current column
          //    (i,0) = LocalCost(i,0) + GlobalCost(i-1,0)
          currCol[0] = lastCol[0] + euclideanDist(tsI.getMeasurementVector(i), tsJ.getMeasurementVector(0));
+         double colMin = currCol[0];
 
          for (int j=1; j<=maxJ; j++)  // j = rows
          {
             // (i,j) = LocalCost(i,j) + minGlobalCost{(i-1,j),(i-1,j-1),(i,j-1)}
             final double minGlobalCost = Math.min(lastCol[j], Math.min(lastCol[j-1], currCol[j-1]));
             currCol[j] = minGlobalCost + euclideanDist(tsI.getMeasurementVector(i), tsJ.getMeasurementVector(j));
+            colMin = Math.min(colMin, currCol[j]);
          }  // end for loop
+
+         if (colMin > cutoff)
+            return Double.POSITIVE_INFINITY;
       }  // end for loop
 
       // Minimum Cost is at (maxI,maxJ)
-      return currCol[maxJ];
+      return (currCol[maxJ] > cutoff) ? Double.POSITIVE_INFINITY : currCol[maxJ];
    }  // end getWarpDistBetween(..)
 
 
@@ -90,6 +105,26 @@ public class DTW
    }
 
 
+   // Returns the same warp path as getWarpPathBetween(tsI, tsJ) without storing the whole cost matrix (see
+   //    LinearSpaceWarpPath), for time series that are too long for an O(n*m) cost matrix.
+   public static WarpPath getLinearSpaceWarpPathBetween(TimeSeries tsI, TimeSeries tsJ)
+   {
+      return getLinearSpaceWarpInfoBetween(tsI, tsJ).getPath();
+   }
+
+
+   public static TimeWarpInfo getLinearSpaceWarpInfoBetween(final TimeSeries tsI, final TimeSeries tsJ)
+   {
+      return new LinearSpaceWarpPath(tsI.size(), tsJ.size())
+      {
+         double localCost(int i, int j)
+         {
+            return euclideanDist(tsI.getMeasurementVector(i), tsJ.getMeasurementVector(j));
+         }
+      }.findWarpInfo();
+   }
+
+
    private static TimeWarpInfo DynamicTimeWarp(TimeSeries tsI, TimeSeries tsJ)
    {
       //     COST MATRIX:
@@ -229,41 +264,40 @@ catch (Exception e)
       //     0 1 2 3 4 5 6
       //            i
       //   access is M(i,j)... column-row
-      final CostMatrix costMatrix = new PartialWindowMatrix(window);
+      final CostMatrix costMatrix = CostMatrixFactory.getDefault().create(window, false);
       final int maxI = tsI.size()-1;
       final int maxJ = tsJ.size()-1;
 
-      // Get an iterator that traverses the window cells in the order that the cost matrix is filled.
-      //    (first to last row (1..maxI), bottom to top (1..MaxJ)
-      final Iterator matrixIterator = window.iterator();
-
-      while (matrixIterator.hasNext())
+      // Traverse the window cells in the order that the cost matrix is filled.
+      //    (first to last column (0..maxI), bottom to top (minJforI(i)..maxJforI(i))
+      for (int i=window.minI(); i<=window.maxI(); i++)
       {
-         final ColMajorCell currentCell = (ColMajorCell)matrixIterator.next();  // current cell being filled
-         final int i = currentCell.getCol();
-         final int j = currentCell.getRow();
+         final double[] pointI = tsI.getMeasurementVector(i);
+         final int maxJforI = window.maxJforI(i);
 
-         if ( (i==0) && (j==0) )      // bottom left cell (first row AND first column)
-            costMatrix.put(i, j, euclideanDist(tsI.getMeasurementVector(0), tsJ.getMeasurementVector(0)));
-         else if (i == 0)             // first column
+         for (int j=window.minJforI(i); j<=maxJforI; j++)
          {
-            costMatrix.put(i, j, euclideanDist(tsI.getMeasurementVector(0), tsJ.getMeasurementVector(j)) +
-                                 costMatrix.get(i, j-1));
-         }
-         else if (j == 0)             // first row
-         {
-            costMatrix.put(i, j, euclideanDist(tsI.getMeasurementVector(i), tsJ.getMeasurementVector(0)) +
-                                 costMatrix.get(i-1, j));
-         }
-         else                         // not first column or first row
-         {
-            final double minGlobalCost = Math.min(costMatrix.get(i-1, j),
-                                                  Math.min(costMatrix.get(i-1, j-1),
-                                                           costMatrix.get(i, j-1)));
-            costMatrix.put(i, j, minGlobalCost + euclideanDist(tsI.getMeasurementVector(i),
-                                                               tsJ.getMeasurementVector(j)));
-         }  // end if
-      }  // end while loop
+            if ( (i==0) && (j==0) )      // bottom left cell (first row AND first column)
+               costMatrix.put(i, j, euclideanDist(pointI, tsJ.getMeasurementVector(0)));
+            else if (i == 0)             // first column
+            {
+               costMatrix.put(i, j, euclideanDist(pointI, tsJ.getMeasurementVector(j)) +
+                                    costMatrix.get(i, j-1));
+            }
+            else if (j == 0)             // first row
+            {
+               costMatrix.put(i, j, euclideanDist(pointI, tsJ.getMeasurementVector(0)) +
+                                    costMatrix.get(i-1, j));
+            }
+            else                         // not first column or first row
+            {
+               final double minGlobalCost = Math.min(costMatrix.get(i-1, j),
+                                                     Math.min(costMatrix.get(i-1, j-1),
+                                                              costMatrix.get(i, j-1)));
+               costMatrix.put(i, j, minGlobalCost + euclideanDist(pointI, tsJ.getMeasurementVector(j)));
+            }  // end if
+         }  // end for loop
+      }  // end for loop
 
       // Minimum Cost is at (maxI, maxJ)
       return costMatrix.get(maxI, maxJ);
@@ -299,37 +333,36 @@ catch (Exception e)
       final int maxI = tsI.size()-1;
       final int maxJ = tsJ.size()-1;
 
-      // Get an iterator that traverses the window cells in the order that the cost matrix is filled.
-      //    (first to last row (1..maxI), bottom to top (1..MaxJ)
-      final Iterator matrixIterator = window.iterator();
-
-      while (matrixIterator.hasNext())
+      // Traverse the window cells in the order that the cost matrix is filled.
+      //    (first to last column (0..maxI), bottom to top (minJforI(i)..maxJforI(i))
+      for (int i=window.minI(); i<=window.maxI(); i++)
       {
-         final ColMajorCell currentCell = (ColMajorCell)matrixIterator.next();  // current cell being filled
-         final int i = currentCell.getCol();
-         final int j = currentCell.getRow();
+         final double[] pointI = tsI.getMeasurementVector(i);
+         final int maxJforI = window.maxJforI(i);
 
-         if ( (i==0) && (j==0) )      // bottom left cell (first row AND first column)
-            costMatrix.put(i, j, euclideanDist(tsI.getMeasurementVector(0), tsJ.getMeasurementVector(0)));
-         else if (i == 0)             // first column
-         {
-            costMatrix.put(i, j, euclideanDist(tsI.getMeasurementVector(0), tsJ.getMeasurementVector(j)) +
-                                 costMatrix.get(i, j-1));
-         }
-         else if (j == 0)             // first row
-         {
-            costMatrix.put(i, j, euclideanDist(tsI.getMeasurementVector(i), tsJ.getMeasurementVector(0)) +
-                                 costMatrix.get(i-1, j));
-         }
-         else                         // not first column or first row
+         for (int j=window.minJforI(i); j<=maxJforI; j++)
          {
-            final double minGlobalCost = Math.min(costMatrix.get(i-1, j),
-                                                  Math.min(costMatrix.get(i-1, j-1),
-                                                           costMatrix.get(i, j-1)));
-            costMatrix.put(i, j, minGlobalCost + euclideanDist(tsI.getMeasurementVector(i),
-                                                               tsJ.getMeasurementVector(j)));
-         }  // end if
-      }  // end while loop
+            if ( (i==0) && (j==0) )      // bottom left cell (first row AND first column)
+               costMatrix.put(i, j, euclideanDist(pointI, tsJ.getMeasurementVector(0)));
+            else if (i == 0)             // first column
+            {
+               costMatrix.put(i, j, euclideanDist(pointI, tsJ.getMeasurementVector(j)) +
+                                    costMatrix.get(i, j-1));
+            }
+            else if (j == 0)             // first row
+            {
+               costMatrix.put(i, j, euclideanDist(pointI, tsJ.getMeasurementVector(0)) +
+                                    costMatrix.get(i-1, j));
+            }
+            else                         // not first column or first row
+            {
+               final double minGlobalCost = Math.min(costMatrix.get(i-1, j),
+                                                     Math.min(costMatrix.get(i-1, j-1),
+                                                              costMatrix.get(i, j-1)));
+               costMatrix.put(i, j, minGlobalCost + euclideanDist(pointI, tsJ.getMeasurementVector(j)));
+            }  // end if
+         }  // end for loop
+      }  // end for loop
 
       // Minimum Cost is at (maxI, maxJ)
       final double minimumCost = costMatrix.get(maxI, maxJ);
@@ -0,0 +1,48 @@
+/*
+ * DTWEngine.java
+ *
+ * A DTW algoritmus távolságmotorként.
+ */
+
+package com.dtw;
+
+import com.timeseries.TimeSeries;
+
+
+/**
+ * A teljes DTW algoritmus euklideszi távolsággal. A pontok súlyait nem veszi figyelembe.
+ */
+public class DTWEngine implements DistanceEngine
+{
+
+   // FUNCTIONS
+   public double getWarpDistBetween(TimeSeries tsI, TimeSeries tsJ)
+   {
+      return DTW.getWarpDistBetween(tsI, tsJ);
+   }
+
+
+   public double getWarpDistBetween(TimeSeries tsI, TimeSeries tsJ, double cutoff)
+   {
+      return DTW.getWarpDistBetween(tsI, tsJ, cutoff);
+   }
+
+
+   public double getWarpDistBetween(TimeSeries tsI, TimeSeries tsJ, double[] pointWeights, double cutoff)
+   {
+      return DTW.getWarpDistBetween(tsI, tsJ, cutoff);
+   }
+
+
+   public TimeWarpInfo getWarpInfoBetween(TimeSeries tsI, TimeSeries tsJ)
+   {
+      return DTW.getWarpInfoBetween(tsI, tsJ);
+   }
+
+
+   public double[] getCoordWeights()
+   {
+      return null;
+   }
+
+}  // end class DTWEngine
@@ -0,0 +1,69 @@
+/*
+ * DistanceEngine.java
+ *
+ * Két idősor távolságát és illesztési útvonalát kiszámító algoritmus.
+ */
+
+package com.dtw;
+
+import com.timeseries.TimeSeries;
+
+
+/**
+ * Két idősor (DTW) távolságát és illesztési útvonalát kiszámító algoritmus, amelyet a tanítóhalmazok,
+ * a sablonok és az osztályozók paraméterként kapnak meg, így az algoritmus kódváltoztatás nélkül
+ * cserélhető. A koordináták súlyait a megvalósítások a konstruktorban kapják meg. A megvalósításoknak
+ * több szálból is használhatónak kell lenniük.
+ */
+public interface DistanceEngine
+{
+   /**
+    * Két idősor távolsága.
+    * @param tsI első idősor
+    * @param tsJ második idősor
+    * @return távolság
+    */
+   public double getWarpDistBetween(TimeSeries tsI, TimeSeries tsJ);
+
+
+   /**
+    * Két idősor távolsága egy felső korláttal. Ha a távolság nagyobb a korlátnál, +végtelen a
+    * visszatérési érték, egyébként ugyanaz, mint a korlát nélküli változaté.
+    * @param tsI első idősor
+    * @param tsJ második idősor
+    * @param cutoff felső korlát
+    * @return távolság, vagy +végtelen, ha nagyobb a korlátnál
+    */
+   public double getWarpDistBetween(TimeSeries tsI, TimeSeries tsJ, double cutoff);
+
+
+   /**
+    * Két idősor távolsága a pontok súlyozásával (lásd ImprovedDTW), egy felső korláttal. A súlyokat
+    * nem támogató algoritmusok figyelmen kívül hagyják őket (ahogy a FastImprovedDTW is).
+    * @param tsI első idősor
+    * @param tsJ második idősor
+    * @param pointWeights pontok súlyai (null esetén egyforma súlyok)
+    * @param cutoff felső korlát
+    * @return távolság, vagy +végtelen, ha nagyobb a korlátnál
+    */
+   public double getWarpDistBetween(TimeSeries tsI, TimeSeries tsJ, double[] pointWeights, double cutoff);
+
+
+   /**
+    * Két idősor távolsága és illesztési útvonala.
+    * @param tsI első idősor
+    * @param tsJ második idősor
+    * @return távolság és útvonal
+    */
+   public TimeWarpInfo getWarpInfoBetween(TimeSeries tsI, TimeSeries tsJ);
+
+
+   /**
+    * A helyi költségként használt súlyozott euklideszi távolság koordináta súlyai (lásd
+    * ImprovedDTW), vagy null, ha a helyi költség a súlyozatlan euklideszi távolság. Az osztályozók
+    * ezekkel a súlyokkal adnak alsó becslést a távolságra (lásd Envelope).
+    * @return a koordináták súlyainak másolata, vagy null
+    */
+   public double[] getCoordWeights();
+
+}  // end interface DistanceEngine
@@ -0,0 +1,138 @@
+/*
+ * Envelope.java
+ *
+ * Egy idősor burkolója, amellyel a DTW távolságra olcsó alsó becslés adható.
+ */
+
+package com.dtw;
+
+import com.timeseries.TimeSeries;
+
+
+public class Envelope
+{
+   // PRIVATE DATA
+   private final double[] first;   // first point of the time series
+   private final double[] last;    // last point of the time series
+   private final double[] lower;   // minimum of every dimension over the whole time series
+   private final double[] upper;   // maximum of every dimension over the whole time series
+   private final int size;
+
+
+   // CONSTRUCTOR
+   public Envelope(TimeSeries ts)
+   {
+      if (ts.size() == 0)
+         throw new InternalError("ERROR:  cannot create the envelope of an empty time series.");
+
+      size = ts.size();
+      first = ts.getMeasurementVector(0).clone();
+      last = ts.getMeasurementVector(size-1).clone();
+      lower = first.clone();
+      upper = first.clone();
+
+      for (int i=1; i<size; i++)
+      {
+         final double[] point = ts.getMeasurementVector(i);
+         for (int x=0; x<point.length; x++)
+         {
+            if (point[x] < lower[x])
+               lower[x] = point[x];
+            else if (point[x] > upper[x])
+               upper[x] = point[x];
+         }  // end for loop
+      }  // end for loop
+   }  // end Constructor
+
+
+   // FUNCTIONS
+   public int size()
+   {
+      return size;
+   }
+
+
+   // LB_Kim:  every warp path starts at the first and ends at the last points of both time series, so the distance
+   //    of these two pairs is a lower bound on the warp distance calculated by DTW or FastDTW.
+   public double lbKim(TimeSeries query)
+   {
+      return lbKim(query, null);
+   }
+
+
+   // The same as lbKim(.), but for the weighted euclidean distance of ImprovedDTW (and FastImprovedDTW) with point
+   //    weights of 1.  If 'coordWeights' is null the distance is the euclidean distance.
+   public double lbKim(TimeSeries query, double[] coordWeights)
+   {
+      if (query.size() == 0)
+         throw new InternalError("ERROR:  cannot calculate the lower bound of an empty time series.");
+
+      double bound = euclideanDist(first, query.getMeasurementVector(0), coordWeights);
+      if ( (size > 1) || (query.size() > 1) )   // the two ends are different cells of the cost matrix
+         bound += euclideanDist(last, query.getMeasurementVector(query.size()-1), coordWeights);
+
+      return bound;
+   }  // end lbKim(..)
+
+
+   // LB_Keogh:  LB_Kim plus, for every inner point of 'query', the distance between that point and the bounding box
+   //    of this time series.  Every inner point of the query is aligned with at least one point of this time series in
+   //    a cell that differs from the two ends.  FastDTW does not constrain the warp path to a fixed band, so the
+   //    envelope is the box around the whole time series rather than a sliding window.
+   public double lbKeogh(TimeSeries query)
+   {
+      return lbKeogh(query, null);
+   }
+
+
+   // The same as lbKeogh(.), but with the weighted euclidean distance (see lbKim(..)).
+   public double lbKeogh(TimeSeries query, double[] coordWeights)
+   {
+      double bound = lbKim(query, coordWeights);
+      for (int j=1; j<query.size()-1; j++)
+         bound += boxDist(query.getMeasurementVector(j), coordWeights);
+
+      return bound;
+   }  // end lbKeogh(..)
+
+
+   // Distance of a point from the bounding box, zero if the point is inside of it.
+   private double boxDist(double[] point, double[] coordWeights)
+   {
+      if (point.length != lower.length)
+         throw new InternalError("ERROR:  cannot calculate the distance "
+                                 + "between vectors of different sizes.");
+
+      double sqSum = 0.0;
+      for (int x=0; x<point.length; x++)
+      {
+         double diff = 0.0;
+         if (point[x] < lower[x])
+            diff = lower[x]-point[x];
+         else if (point[x] > upper[x])
+            diff = point[x]-upper[x];
+
+         sqSum += (coordWeights == null) ? diff*diff : (diff*diff)*coordWeights[x];
+      }  // end for loop
+
+      return Math.sqrt(sqSum);
+   }  // end boxDist(..)
+
+
+   private static double euclideanDist(double[] vector1, double[] vector2, double[] coordWeights)
+   {
+      if (vector1.length != vector2.length)
+         throw new InternalError("ERROR:  cannot calculate the distance "
+                                 + "between vectors of different sizes.");
+
+      double sqSum = 0.0;
+      for (int x=0; x<vector1.length; x++)
+      {
+         final double diff = vector1[x]-vector2[x];
+         sqSum += (coordWeights == null) ? diff*diff : (diff*diff)*coordWeights[x];
+      }  // end for loop
+
+      return Math.sqrt(sqSum);
+   }  // end euclideanDist(..)
+
+}  // end class Envelope
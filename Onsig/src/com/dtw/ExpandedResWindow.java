@@ -9,7 +9,6 @@ package com.dtw;
 
 import com.timeseries.TimeSeries;
 import com.timeseries.PAA;
-import com.matrix.ColMajorCell;
 
 
 public class ExpandedResWindow extends SearchWindow
@@ -20,7 +19,30 @@ public class ExpandedResWindow extends SearchWindow
    {
       // Initialize the private data in the super class.
       super(tsI.size(), tsJ.size());
+      project(shrunkI, shrunkJ, shrunkWarpPath, searchRadius);
+   }  // end Constructor
+
+
+   // Creates an empty window that is filled in later by reinitialize(.).
+   ExpandedResWindow()
+   {
+      super(0, 0);
+   }
+
+
 
+   // Replaces the contents of the window with the projection of a new warp path, reusing the arrays of the window.
+   void reinitialize(TimeSeries tsI, TimeSeries tsJ, PAA shrunkI, PAA shrunkJ, WarpPath shrunkWarpPath,
+                     int searchRadius)
+   {
+      super.reset(tsI.size(), tsJ.size());
+      project(shrunkI, shrunkJ, shrunkWarpPath, searchRadius);
+   }
+
+
+   // Projects the low-resolution warp path to the resolution of the window and expands it by the search radius.
+   private void project(PAA shrunkI, PAA shrunkJ, WarpPath shrunkWarpPath, int searchRadius)
+   {
       // Variables to keep track of the current location of the higher resolution projected path.
       int currentI = shrunkWarpPath.minI();
       int currentJ = shrunkWarpPath.minJ();
@@ -34,9 +56,8 @@ public class ExpandedResWindow extends SearchWindow
       //    path's corresponding cells at the higher resolution.
       for (int w=0; w<shrunkWarpPath.size(); w++)
       {
-         final ColMajorCell currentCell = shrunkWarpPath.get(w);
-         final int warpedI = currentCell.getCol();
-         final int warpedJ = currentCell.getRow();
+         final int warpedI = shrunkWarpPath.getI(w);
+         final int warpedJ = shrunkWarpPath.getJ(w);
 
          final int blockISize = shrunkI.aggregatePtSize(warpedI);
          final int blockJSize = shrunkJ.aggregatePtSize(warpedJ);
@@ -78,7 +99,7 @@ public class ExpandedResWindow extends SearchWindow
 
       // Expand the size of the projected warp path by the specified width.
       super.expandWindow(searchRadius);
-   }  // end Constructor
+   }  // end project(..)
 
 
 }  // end class ExpandedResWindow
@@ -19,13 +19,13 @@ public class FastDTW
 
    public static double getWarpDistBetween(TimeSeries tsI, TimeSeries tsJ)
    {
-      return fastDTW(tsI, tsJ, DEFAULT_SEARCH_RADIUS).getDistance();
+      return fastDTWDistance(tsI, tsJ, DEFAULT_SEARCH_RADIUS);
    }
 
 
    public static double getWarpDistBetween(TimeSeries tsI, TimeSeries tsJ, int searchRadius)
    {
-      return fastDTW(tsI, tsJ, searchRadius).getDistance();
+      return fastDTWDistance(tsI, tsJ, searchRadius);
    }
 
 
@@ -66,15 +66,61 @@ public class FastDTW
          final PAA shrunkI = new PAA(tsI, (int)(tsI.size()/resolutionFactor));
          final PAA shrunkJ = new PAA(tsJ, (int)(tsJ.size()/resolutionFactor));
 
-          // Determine the search window that constrains the area of the cost matrix that will be evaluated based on
-          //    the warp path found at the previous resolution (smaller time series).
-          final SearchWindow window = new ExpandedResWindow(tsI, tsJ, shrunkI, shrunkJ,
-                                                            FastDTW.getWarpPathBetween(shrunkI, shrunkJ, searchRadius),
-                                                            searchRadius);
+         // Determine the search window that constrains the area of the cost matrix that will be evaluated based on
+         //    the warp path found at the previous resolution (smaller time series).  The window of the thread is
+         //    reused, it is taken only after the recursive call has returned.
+         final WarpPath shrunkWarpPath = FastDTW.getWarpPathBetween(shrunkI, shrunkJ, searchRadius);
+         final WarpWorkspace workspace = WarpWorkspace.current();
+         final SearchWindow window = workspace.acquireWindow(tsI, tsJ, shrunkI, shrunkJ, shrunkWarpPath, searchRadius);
 
          // Find the optimal warp path through this search window constraint.
-         return DTW.getWarpInfoBetween(tsI, tsJ, window);
+         try
+         {
+            return DTW.getWarpInfoBetween(tsI, tsJ, window);
+         }
+         finally
+         {
+            workspace.releaseWindow(window);
+         }  // end try
       }  // end if
    }  // end recFastDTW(...)
 
+
+   // The same distance as fastDTW(..).getDistance(), but the warp path of the full resolution is not built: the
+   //    cost matrix of the last step only stores two columns of the window (the lower resolutions still need
+   //    their warp paths to project the window).
+   private static double fastDTWDistance(TimeSeries tsI, TimeSeries tsJ, int searchRadius)
+   {
+      if (searchRadius < 0)
+         searchRadius = 0;
+
+      final int minTSsize = searchRadius+2;
+
+      if ( (tsI.size() <= minTSsize) || (tsJ.size()<=minTSsize) )
+      {
+         // Perform full Dynamic Time Warping.
+         return DTW.getWarpDistBetween(tsI, tsJ);
+      }
+      else
+      {
+         final double resolutionFactor = 2.0;
+
+         final PAA shrunkI = new PAA(tsI, (int)(tsI.size()/resolutionFactor));
+         final PAA shrunkJ = new PAA(tsJ, (int)(tsJ.size()/resolutionFactor));
+
+         final WarpPath shrunkWarpPath = FastDTW.getWarpPathBetween(shrunkI, shrunkJ, searchRadius);
+         final WarpWorkspace workspace = WarpWorkspace.current();
+         final SearchWindow window = workspace.acquireWindow(tsI, tsJ, shrunkI, shrunkJ, shrunkWarpPath, searchRadius);
+
+         try
+         {
+            return DTW.getWarpDistBetween(tsI, tsJ, window);
+         }
+         finally
+         {
+            workspace.releaseWindow(window);
+         }  // end try
+      }  // end if
+   }  // end fastDTWDistance(...)
+
 }  // end class fastDTW
@@ -0,0 +1,70 @@
+/*
+ * FastDTWEngine.java
+ *
+ * A FastDTW algoritmus távolságmotorként.
+ */
+
+package com.dtw;
+
+import com.timeseries.TimeSeries;
+
+
+/**
+ * A FastDTW algoritmus (euklideszi távolsággal) adott keresési sugárral. Ez a tanítóhalmaz és a
+ * DTW osztályozó alapértelmezett távolságszámítása. A pontok súlyait nem veszi figyelembe, a
+ * korlátot csak a teljes számítás után ellenőrzi.
+ */
+public class FastDTWEngine implements DistanceEngine
+{
+   // PRIVATE DATA
+   private final int searchRadius;
+
+
+   // CONSTRUCTOR
+   /**
+    * @param searchRadius keresési sugár
+    */
+   public FastDTWEngine(int searchRadius)
+   {
+      this.searchRadius = searchRadius;
+   }
+
+
+   // FUNCTIONS
+   public int getSearchRadius()
+   {
+      return searchRadius;
+   }
+
+
+   public double getWarpDistBetween(TimeSeries tsI, TimeSeries tsJ)
+   {
+      return FastDTW.getWarpDistBetween(tsI, tsJ, searchRadius);
+   }
+
+
+   public double getWarpDistBetween(TimeSeries tsI, TimeSeries tsJ, double cutoff)
+   {
+      final double distance = getWarpDistBetween(tsI, tsJ);
+      return (distance > cutoff) ? Double.POSITIVE_INFINITY : distance;
+   }
+
+
+   public double getWarpDistBetween(TimeSeries tsI, TimeSeries tsJ, double[] pointWeights, double cutoff)
+   {
+      return getWarpDistBetween(tsI, tsJ, cutoff);
+   }
+
+
+   public TimeWarpInfo getWarpInfoBetween(TimeSeries tsI, TimeSeries tsJ)
+   {
+      return FastDTW.getWarpInfoBetween(tsI, tsJ, searchRadius);
+   }
+
+
+   public double[] getCoordWeights()
+   {
+      return null;
+   }
+
+}  // end class FastDTWEngine
@@ -8,7 +8,6 @@
 package com.dtw;
 
 import com.timeseries.TimeSeries;
-import com.timeseries.PAA;
 
 
 public class FastImprovedDTW
@@ -52,34 +51,11 @@ public class FastImprovedDTW
    }
 
 
+   // The PAA pyramids of the time series are built once, before the warp path is refined (see FastWarpEngine), the
+   //    point weights are not used by FastImprovedDTW.
    private static TimeWarpInfo fastDTW(TimeSeries tsI, TimeSeries tsJ, int searchRadius, double[] weights, double[] pointWeights)
-   {	   
-      if (searchRadius < 0)
-         searchRadius = 0;
-
-      final int minTSsize = searchRadius+2;
-
-      if ( (tsI.size() <= minTSsize) || (tsJ.size()<=minTSsize) )
-      {
-         // Perform full Dynamic Time Warping.
-         return ImprovedDTW.getWarpInfoBetween(tsI, tsJ, weights);
-      }
-      else
-      {
-         final double resolutionFactor = 2.0;
-
-         final PAA shrunkI = new PAA(tsI, (int)(tsI.size()/resolutionFactor));
-         final PAA shrunkJ = new PAA(tsJ, (int)(tsJ.size()/resolutionFactor));
-
-          // Determine the search window that constrains the area of the cost matrix that will be evaluated based on
-          //    the warp path found at the previous resolution (smaller time series).
-          final SearchWindow window = new ExpandedResWindow(tsI, tsJ, shrunkI, shrunkJ,
-                                                            FastImprovedDTW.getWarpPathBetween(shrunkI, shrunkJ, searchRadius, weights),
-                                                            searchRadius);
-
-         // Find the optimal warp path through this search window constraint.
-         return ImprovedDTW.getWarpInfoBetween(tsI, tsJ, window, weights);
-      }  // end if
-   }  // end recFastDTW(...)
+   {
+      return new FastWarpEngine(searchRadius).getWarpInfoBetween(tsI, tsJ, weights);
+   }  // end fastDTW(...)
 
 }  // end class fastDTW
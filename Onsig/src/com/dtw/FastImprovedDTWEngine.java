@@ -0,0 +1,97 @@
+/*
+ * FastImprovedDTWEngine.java
+ *
+ * A FastImprovedDTW algoritmus távolságmotorként.
+ */
+
+package com.dtw;
+
+import com.timeseries.PAAPyramid;
+import com.timeseries.TimeSeries;
+
+
+/**
+ * A FastImprovedDTW algoritmus (lásd FastWarpEngine) adott koordináta súlyokkal és keresési
+ * sugárral. Ez a sablonok készítésekor használt alapértelmezett illesztés. A pontok súlyait nem
+ * veszi figyelembe (ahogy a FastImprovedDTW sem), a korlátot csak a teljes számítás után ellenőrzi.
+ */
+public class FastImprovedDTWEngine implements DistanceEngine
+{
+   // PRIVATE DATA
+   private final double[] coordWeights;
+   private final FastWarpEngine engine;
+
+
+   // CONSTRUCTORS
+   /**
+    * A FastImprovedDTW alapértelmezett keresési sugarával.
+    * @param coordWeights koordináták súlyai
+    */
+   public FastImprovedDTWEngine(double[] coordWeights)
+   {
+      this(coordWeights, FastImprovedDTW.DEFAULT_SEARCH_RADIUS);
+   }
+
+
+   /**
+    * @param coordWeights koordináták súlyai
+    * @param searchRadius keresési sugár
+    */
+   public FastImprovedDTWEngine(double[] coordWeights, int searchRadius)
+   {
+      this.coordWeights = (coordWeights == null) ? null : coordWeights.clone();
+      this.engine = new FastWarpEngine(searchRadius);
+   }
+
+
+   // FUNCTIONS
+   public int getSearchRadius()
+   {
+      return engine.getSearchRadius();
+   }
+
+
+   public double getWarpDistBetween(TimeSeries tsI, TimeSeries tsJ)
+   {
+      return getWarpInfoBetween(tsI, tsJ).getDistance();
+   }
+
+
+   public double getWarpDistBetween(TimeSeries tsI, TimeSeries tsJ, double cutoff)
+   {
+      final double distance = getWarpDistBetween(tsI, tsJ);
+      return (distance > cutoff) ? Double.POSITIVE_INFINITY : distance;
+   }
+
+
+   public double getWarpDistBetween(TimeSeries tsI, TimeSeries tsJ, double[] pointWeights, double cutoff)
+   {
+      return getWarpDistBetween(tsI, tsJ, cutoff);
+   }
+
+
+   public TimeWarpInfo getWarpInfoBetween(TimeSeries tsI, TimeSeries tsJ)
+   {
+      return engine.getWarpInfoBetween(tsI, tsJ, coordWeights);
+   }
+
+
+   /**
+    * Két idősor távolsága és illesztési útvonala, az első idősor előre felépített PAA piramisával
+    * (lásd FastWarpEngine.getWarpInfoBetween(PAAPyramid, TimeSeries, double[])).
+    * @param pyramidI első idősor piramisa
+    * @param tsJ második idősor
+    * @return távolság és útvonal
+    */
+   public TimeWarpInfo getWarpInfoBetween(PAAPyramid pyramidI, TimeSeries tsJ)
+   {
+      return engine.getWarpInfoBetween(pyramidI, tsJ, coordWeights);
+   }
+
+
+   public double[] getCoordWeights()
+   {
+      return (coordWeights == null) ? null : coordWeights.clone();
+   }
+
+}  // end class FastImprovedDTWEngine
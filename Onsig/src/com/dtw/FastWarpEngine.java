@@ -0,0 +1,180 @@
+/*
+ * FastWarpEngine.java
+ *
+ * A FastImprovedDTW algoritmus állítható felbontáscsökkentéssel, előre felépített PAA piramisokon.
+ */
+
+package com.dtw;
+
+import com.timeseries.PAAPyramid;
+import com.timeseries.TimeSeries;
+
+
+/**
+ * A FastImprovedDTW algoritmus ciklussal, rekurzió nélkül. A két idősor PAA piramisát (lásd
+ * PAAPyramid) egyszerre, a számítás előtt építi fel, vagy a hívó által előre felépített
+ * piramisokat kapja meg (lásd buildPyramid(TimeSeries)), így egy változatlan idősor piramisa
+ * több számításhoz is felhasználható. A legdurvább szinten teljes DTW-t számol, majd
+ * szintenként a durvább szint útvonalából vetített ablakban finomít.
+ * <p>
+ * Az alapértelmezett beállítások (2-es felbontáscsökkentés, keresési sugár + 2 pontos legkisebb
+ * méret) pontosan a FastImprovedDTW eredményét adják. Egy példány több szálból is használható.
+ */
+public class FastWarpEngine
+{
+   // CONSTANTS
+   public static final double DEFAULT_RESOLUTION_FACTOR = 2.0;
+   public static final int SMALLEST_MIN_SIZE = 2;   // the smallest minimum size (search radius 0)
+
+
+   // PRIVATE DATA
+   private final double resolutionFactor;
+   private final int searchRadius;
+   private final int minSize;   // full DTW is calculated at the first level where a time series is not larger
+
+
+   // CONSTRUCTORS
+   /**
+    * Az alapértelmezett felbontáscsökkentéssel és legkisebb mérettel.
+    * @param searchRadius keresési sugár
+    */
+   public FastWarpEngine(int searchRadius)
+   {
+      this(DEFAULT_RESOLUTION_FACTOR, searchRadius, 0);
+   }
+
+
+   /**
+    * @param resolutionFactor ennyiszeresére csökken az idősorok hossza szintenként (1-nél nagyobb)
+    * @param searchRadius keresési sugár (negatív érték esetén 0)
+    * @param minSize a legdurvább szinten legalább az egyik idősor legfeljebb ekkora (legalább keresési sugár + 2)
+    */
+   public FastWarpEngine(double resolutionFactor, int searchRadius, int minSize)
+   {
+      if (resolutionFactor <= 1.0)
+         throw new InternalError("ERROR:  The resolution factor must be greater than 1 " +
+                                 "(resolutionFactor=" + resolutionFactor + ").");
+
+      this.resolutionFactor = resolutionFactor;
+      this.searchRadius = Math.max(searchRadius, 0);
+      this.minSize = Math.max(minSize, this.searchRadius+SMALLEST_MIN_SIZE);
+   }  // end Constructor
+
+
+   // FUNCTIONS
+   public double getResolutionFactor()
+   {
+      return resolutionFactor;
+   }
+
+
+   public int getSearchRadius()
+   {
+      return searchRadius;
+   }
+
+
+   public int getMinSize()
+   {
+      return minSize;
+   }
+
+
+   /**
+    * Felépíti egy idősor PAA piramisát a motor beállításaival. A piramis addig használható, amíg
+    * az idősor nem változik.
+    * @param ts idősor
+    * @return a piramis
+    */
+   public PAAPyramid buildPyramid(TimeSeries ts)
+   {
+      return new PAAPyramid(ts, resolutionFactor, minSize);
+   }
+
+
+   public double getWarpDistBetween(TimeSeries tsI, TimeSeries tsJ, double[] weights)
+   {
+      return getWarpInfoBetween(tsI, tsJ, weights).getDistance();
+   }
+
+
+   public WarpPath getWarpPathBetween(TimeSeries tsI, TimeSeries tsJ, double[] weights)
+   {
+      return getWarpInfoBetween(tsI, tsJ, weights).getPath();
+   }
+
+
+   /**
+    * Két idősor távolsága és illesztési útvonala, a PAA piramisaikat most felépítve.
+    * @param tsI első idősor
+    * @param tsJ második idősor
+    * @param weights koordináták súlyai
+    * @return távolság és útvonal
+    */
+   public TimeWarpInfo getWarpInfoBetween(TimeSeries tsI, TimeSeries tsJ, double[] weights)
+   {
+      return getWarpInfoBetween(buildPyramid(tsI), buildPyramid(tsJ), weights);
+   }
+
+
+   /**
+    * Két idősor távolsága és illesztési útvonala, az első idősor előre felépített PAA piramisával
+    * (pl. egy sablonéval), a második idősor piramisát most felépítve. Ha az első piramis nem a motor
+    * felbontáscsökkentésével vagy nem elég mélyre készült, azt is újra felépíti.
+    * @param pyramidI első idősor piramisa
+    * @param tsJ második idősor
+    * @param weights koordináták súlyai
+    * @return távolság és útvonal
+    */
+   public TimeWarpInfo getWarpInfoBetween(PAAPyramid pyramidI, TimeSeries tsJ, double[] weights)
+   {
+      final PAAPyramid usablePyramidI = pyramidI.covers(resolutionFactor, minSize) ?
+                                        pyramidI : buildPyramid(pyramidI.getLevel(0));
+      return getWarpInfoBetween(usablePyramidI, buildPyramid(tsJ), weights);
+   }  // end getWarpInfoBetween(..)
+
+
+   /**
+    * Két idősor távolsága és illesztési útvonala előre felépített PAA piramisokkal. Ha egy piramis
+    * kevesebb szintből áll, mint amennyit a motor beállításai megkívánnának, a teljes DTW a
+    * legdurvább közös szinten történik.
+    * @param pyramidI első idősor piramisa
+    * @param pyramidJ második idősor piramisa
+    * @param weights koordináták súlyai
+    * @return távolság és útvonal
+    */
+   public TimeWarpInfo getWarpInfoBetween(PAAPyramid pyramidI, PAAPyramid pyramidJ, double[] weights)
+   {
+      // Find the coarsest level: the first one where one of the time series is small enough.
+      final int lastLevel = Math.min(pyramidI.numOfLevels(), pyramidJ.numOfLevels())-1;
+      int level = 0;
+      while ( (level<lastLevel) && (pyramidI.getLevel(level).size()>minSize) &&
+              (pyramidJ.getLevel(level).size()>minSize) )
+         level++;
+
+      // Perform full Dynamic Time Warping at the coarsest level.
+      TimeWarpInfo info = ImprovedDTW.getWarpInfoBetween(pyramidI.getLevel(level), pyramidJ.getLevel(level), weights);
+
+      // Refine the warp path level by level in the search window projected from the previous (coarser) level.
+      final WarpWorkspace workspace = WarpWorkspace.current();
+      for (level--; level>=0; level--)
+      {
+         final TimeSeries tsI = pyramidI.getLevel(level);
+         final TimeSeries tsJ = pyramidJ.getLevel(level);
+         final SearchWindow window = workspace.acquireWindow(tsI, tsJ, pyramidI.getAggregateLevel(level+1),
+                                                             pyramidJ.getAggregateLevel(level+1), info.getPath(),
+                                                             searchRadius);
+         try
+         {
+            info = ImprovedDTW.getWarpInfoBetween(tsI, tsJ, window, weights);
+         }
+         finally
+         {
+            workspace.releaseWindow(window);
+         }  // end try
+      }  // end for loop
+
+      return info;
+   }  // end getWarpInfoBetween(..)
+
+}  // end class FastWarpEngine
@@ -10,18 +10,24 @@
 package com.dtw;
 
 import com.timeseries.TimeSeries;
-import com.matrix.ColMajorCell;
 
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.util.Iterator;
-
-import org.omg.CORBA.Principal;
+import java.util.Arrays;
 
 
 public class ImprovedDTW
 {
+   // CONSTANTS
+   private final static int TILE_COLUMNS = 64;    // size of the tiles of the full cost matrix
+   private final static int TILE_ROWS = 512;
+   private final static int CELLS_PER_DIRECTION_WORD = 32;   // 2 bits per cell in a long
+
+   final static int DIAGONAL = 0;   // traceback directions
+   final static int LEFT = 1;
+   final static int DOWN = 2;
+
 
    // FUNCTIONS
    public static double calcWarpCost(WarpPath path, TimeSeries tsI, TimeSeries tsJ)
@@ -43,23 +49,62 @@ public class ImprovedDTW
    //    require the entire cost matrix to be filled and only needs 2 columns to be stored at any one time.
    public static double getWarpDistBetween(TimeSeries tsI, TimeSeries tsJ, double[] coordWeights, double[] pointWeights)
    {
-      // The space complexity is 2*tsJ.size().  Dynamic time warping is symmetric so switching the two time series
-      //    parameters does not effect the final warp cost but can reduce the space complexity by allowing tsJ to
-      //    be set as the shorter time series and only requiring 2 columns of size |tsJ| rather than 2 larger columns of
-      //    size |tsI|.
+      return getWarpDistBetween(tsI, tsJ, coordWeights, pointWeights, Double.POSITIVE_INFINITY);
+   }
+
+
+   /**
+    * Két idősor távolsága egy felső korláttal. Amint egy oszlop minimuma meghaladja a korlátot,
+    * a végső távolság is biztosan nagyobb lesz nála (a költségek nemnegatívak), ezért a számítás
+    * leáll, és a visszatérési érték +végtelen. Ha a távolság nem haladja meg a korlátot, az
+    * eredmény megegyezik a korlát nélküli változatéval.
+    * @param tsI első idősor
+    * @param tsJ második idősor
+    * @param coordWeights koordináták súlyai
+    * @param pointWeights pontok súlyai
+    * @param cutoff felső korlát
+    * @return távolság, vagy +végtelen, ha nagyobb a korlátnál
+    */
+   public static double getWarpDistBetween(TimeSeries tsI, TimeSeries tsJ, double[] coordWeights,
+                                           double[] pointWeights, double cutoff)
+   {
+      if (tsI.numOfDimensions() != tsJ.numOfDimensions())
+         throw new InternalError("ERROR:  cannot calculate the distance "
+                                 + "between vectors of different sizes.");
+
+      // The columns are along the shorter time series, the same way as in the packed kernel.
       if (tsI.size() < tsJ.size())
-         return getWarpDistBetween(tsJ, tsI, coordWeights, pointWeights);
+         return columnWarpDist(tsJ.toPackedArray(), tsJ.size(), new LocalCostColumn(tsI, coordWeights),
+                               pointWeights, cutoff);
+      else
+         return columnWarpDist(tsI.toPackedArray(), tsI.size(), new LocalCostColumn(tsJ, coordWeights),
+                               pointWeights, cutoff);
+   }  // end getWarpDistBetween(..)
+
+
+   // The same calculation as the packed kernel (sizeI >= tsJ.size()), but the local costs of a whole column are
+   //    calculated at once by 'tsJ' before the column of global costs is updated.
+   private static double columnWarpDist(double[] tsI, int sizeI, LocalCostColumn tsJ, double[] pointWeights,
+                                        double cutoff)
+   {
+      final int dims = tsJ.numOfDimensions();
+      final int maxI = sizeI-1;
+      final int maxJ = tsJ.size()-1;
 
       double[] lastCol = new double[tsJ.size()];
       double[] currCol = new double[tsJ.size()];
-      final int maxI = tsI.size()-1;
-      final int maxJ = tsJ.size()-1;
+      final double[] localCosts = new double[tsJ.size()];
 
       // Calculate the values for the first column, from the bottom up.
-      currCol[0] = pointWeights[0]*weightedEuclideanDist(tsI.getMeasurementVector(0), tsJ.getMeasurementVector(0), coordWeights);  // first cell
+      tsJ.getLocalCosts(tsI, 0, 0, maxJ, localCosts);
+      currCol[0] = pointWeights[0]*localCosts[0];  // first cell
       for (int j=1; j<=maxJ; j++)  // the rest of the first column
-         currCol[j] = currCol[j-1] + pointWeights[j]*weightedEuclideanDist(tsI.getMeasurementVector(0), tsJ.getMeasurementVector(j), coordWeights);
-      
+         currCol[j] = currCol[j-1] + pointWeights[j]*localCosts[j];
+
+      // The first column is increasing, its minimum is the bottom cell.
+      if (currCol[0] > cutoff)
+         return Double.POSITIVE_INFINITY;
+
       for (int i=1; i<=maxI; i++)   // i = columns
       {
          // Swap the references between the two arrays.
@@ -67,232 +112,443 @@ public class ImprovedDTW
          lastCol = currCol;
          currCol = temp;
 
+         tsJ.getLocalCosts(tsI, i*dims, 0, maxJ, localCosts);
+         final double pointWeight = pointWeights[i];
+
          // Calculate the value for the bottom row of the current column
          //    (i,0) = LocalCost(i,0) + GlobalCost(i-1,0)
-         currCol[0] = lastCol[0] + pointWeights[i]*weightedEuclideanDist(tsI.getMeasurementVector(i), tsJ.getMeasurementVector(0), coordWeights);
+         currCol[0] = lastCol[0] + pointWeight*localCosts[0];
+         double colMin = currCol[0];
 
          for (int j=1; j<=maxJ; j++)  // j = rows
          {
             // (i,j) = LocalCost(i,j) + minGlobalCost{(i-1,j),(i-1,j-1),(i,j-1)}
             final double minGlobalCost = Math.min(lastCol[j], Math.min(lastCol[j-1], currCol[j-1]));
-            currCol[j] = minGlobalCost + pointWeights[i]*weightedEuclideanDist(tsI.getMeasurementVector(i), tsJ.getMeasurementVector(j), coordWeights);
-            
-            
-            
+            currCol[j] = minGlobalCost + pointWeight*localCosts[j];
+            colMin = Math.min(colMin, currCol[j]);
          }  // end for loop
-      }  // end for loop
-      
-      // Minimum Cost is at (maxI,maxJ)
-      return currCol[maxJ];
-   }  // end getWarpDistBetween(..)
 
+         // Every warp path crosses this column, so none of them can be cheaper than its minimum.
+         if (colMin > cutoff)
+            return Double.POSITIVE_INFINITY;
+      }  // end for loop
 
-   public static WarpPath getWarpPathBetween(TimeSeries tsI, TimeSeries tsJ, double[] weights)
-   {
-      return DynamicTimeWarp(tsI, tsJ, weights).getPath();
-   }
+      // Minimum Cost is at (maxI,maxJ)
+      return (currCol[maxJ] > cutoff) ? Double.POSITIVE_INFINITY : currCol[maxJ];
+   }  // end columnWarpDist(..)
 
 
-   public static TimeWarpInfo getWarpInfoBetween(TimeSeries tsI, TimeSeries tsJ, double[] weights)
+   /**
+    * A getWarpDistBetween(TimeSeries, TimeSeries, double[], double[]) primitív tömbökön dolgozó változata.
+    * Az idősorokat sorfolytonosan tárolt tömbként kapja (az n. pont d. koordinátája az n*dims+d
+    * indexen van, lásd TimeSeries.toPackedArray()), a két oszlopnyi munkaterületet pedig a hívó
+    * adja át, így egy hívás semmilyen memóriát nem foglal. A munkaterületek tartalma a hívás
+    * után nem definiált.
+    * @param tsI első idősor pontjai
+    * @param sizeI első idősor hossza
+    * @param tsJ második idősor pontjai
+    * @param sizeJ második idősor hossza
+    * @param dims a pontok dimenziója
+    * @param coordWeights koordináták súlyai
+    * @param pointWeights pontok súlyai
+    * @param lastCol munkaterület, legalább a rövidebb idősor hosszával
+    * @param currCol munkaterület, legalább a rövidebb idősor hosszával
+    * @return távolság
+    */
+   public static double getWarpDistBetween(double[] tsI, int sizeI, double[] tsJ, int sizeJ, int dims,
+                                           double[] coordWeights, double[] pointWeights,
+                                           double[] lastCol, double[] currCol)
    {
-      return DynamicTimeWarp(tsI, tsJ, weights);
+      return getWarpDistBetween(tsI, sizeI, tsJ, sizeJ, dims, coordWeights, pointWeights, lastCol, currCol,
+                                Double.POSITIVE_INFINITY);
    }
 
 
-   private static TimeWarpInfo DynamicTimeWarp(TimeSeries tsI, TimeSeries tsJ, double[] weights)
+   /**
+    * A primitív tömbökön dolgozó távolságszámítás felső korláttal, lásd
+    * getWarpDistBetween(TimeSeries, TimeSeries, double[], double[], double).
+    * @param tsI első idősor pontjai
+    * @param sizeI első idősor hossza
+    * @param tsJ második idősor pontjai
+    * @param sizeJ második idősor hossza
+    * @param dims a pontok dimenziója
+    * @param coordWeights koordináták súlyai
+    * @param pointWeights pontok súlyai
+    * @param lastCol munkaterület, legalább a rövidebb idősor hosszával
+    * @param currCol munkaterület, legalább a rövidebb idősor hosszával
+    * @param cutoff felső korlát
+    * @return távolság, vagy +végtelen, ha nagyobb a korlátnál
+    */
+   public static double getWarpDistBetween(double[] tsI, int sizeI, double[] tsJ, int sizeJ, int dims,
+                                           double[] coordWeights, double[] pointWeights,
+                                           double[] lastCol, double[] currCol, double cutoff)
    {
-      //     COST MATRIX:
-      //   5|_|_|_|_|_|_|E| E = min Global Cost
-      //   4|_|_|_|_|_|_|_| S = Start point
-      //   3|_|_|_|_|_|_|_| each cell = min global cost to get to that point
-      // j 2|_|_|_|_|_|_|_|
-      //   1|_|_|_|_|_|_|_|
-      //   0|S|_|_|_|_|_|_|
-      //     0 1 2 3 4 5 6
-      //            i
-      //   access is M(i,j)... column-row
+      // Dynamic time warping is symmetric so switching the two time series parameters does not effect the final
+      //    warp cost but allows tsJ to be the shorter time series (see the TimeSeries version).
+      if (sizeI < sizeJ)
+         return getWarpDistBetween(tsJ, sizeJ, tsI, sizeI, dims, coordWeights, pointWeights, lastCol, currCol,
+                                   cutoff);
 
-      final double[][] costMatrix = new double[tsI.size()][tsJ.size()];
-      final int maxI = tsI.size()-1;
-      final int maxJ = tsJ.size()-1;
+      final int maxI = sizeI-1;
+      final int maxJ = sizeJ-1;
 
       // Calculate the values for the first column, from the bottom up.
-      costMatrix[0][0] = weightedEuclideanDist(tsI.getMeasurementVector(0),
-                                       tsJ.getMeasurementVector(0), weights);
-      for (int j=1; j<=maxJ; j++)
-         costMatrix[0][j] = costMatrix[0][j-1] + weightedEuclideanDist(tsI.getMeasurementVector(0),
-                                                               tsJ.getMeasurementVector(j), weights);
+      currCol[0] = pointWeights[0]*weightedEuclideanDist(tsI, 0, tsJ, 0, dims, coordWeights);  // first cell
+      for (int j=1; j<=maxJ; j++)  // the rest of the first column
+         currCol[j] = currCol[j-1] + pointWeights[j]*weightedEuclideanDist(tsI, 0, tsJ, j*dims, dims, coordWeights);
+
+      // The first column is increasing, its minimum is the bottom cell.
+      if (currCol[0] > cutoff)
+         return Double.POSITIVE_INFINITY;
 
       for (int i=1; i<=maxI; i++)   // i = columns
       {
+         // Swap the references between the two arrays.
+         final double[] temp = lastCol;
+         lastCol = currCol;
+         currCol = temp;
+
+         final int offsetI = i*dims;
+         final double pointWeight = pointWeights[i];
+
          // Calculate the value for the bottom row of the current column
          //    (i,0) = LocalCost(i,0) + GlobalCost(i-1,0)
-         costMatrix[i][0] = costMatrix[i-1][0] + weightedEuclideanDist(tsI.getMeasurementVector(i),
-                                                               tsJ.getMeasurementVector(0), weights);
+         currCol[0] = lastCol[0] + pointWeight*weightedEuclideanDist(tsI, offsetI, tsJ, 0, dims, coordWeights);
+         double colMin = currCol[0];
 
-         for (int j=1; j<=maxJ; j++)  // j = rows
+         for (int j=1, offsetJ=dims; j<=maxJ; j++, offsetJ+=dims)  // j = rows
          {
             // (i,j) = LocalCost(i,j) + minGlobalCost{(i-1,j),(i-1,j-1),(i,j-1)}
-            final double minGlobalCost = Math.min(costMatrix[i-1][j],
-                                                  Math.min(costMatrix[i-1][j-1],
-                                                           costMatrix[i][j-1]));
-            costMatrix[i][j] = minGlobalCost + weightedEuclideanDist(tsI.getMeasurementVector(i),
-                                                             tsJ.getMeasurementVector(j), weights);
+            final double minGlobalCost = Math.min(lastCol[j], Math.min(lastCol[j-1], currCol[j-1]));
+            currCol[j] = minGlobalCost + pointWeight*weightedEuclideanDist(tsI, offsetI, tsJ, offsetJ, dims, coordWeights);
+            colMin = Math.min(colMin, currCol[j]);
          }  // end for loop
+
+         // Every warp path crosses this column, so none of them can be cheaper than its minimum.
+         if (colMin > cutoff)
+            return Double.POSITIVE_INFINITY;
       }  // end for loop
 
-/*
-// writes a section of the cost matrix to a file
-try
-{
-final PrintWriter out = new PrintWriter(new FileWriter("matrix1.csv"));
-for (int j=maxJ; j>=0; j--)
-{
-   for (int i=0; i<=maxI; i++)
+      // Minimum Cost is at (maxI,maxJ)
+      return (currCol[maxJ] > cutoff) ? Double.POSITIVE_INFINITY : currCol[maxJ];
+   }  // end getWarpDistBetween(..)
+
+
+   /**
+    * Két idősor távolsága Sakoe-Chiba sávval korlátozva. A sáv a két idősor végpontjait összekötő
+    * egyenes körül a rövidebb idősor mentén mért 'radius' szélességű (0 esetén is tartalmaz
+    * legalább egy összefüggő útvonalat). A számítás két, sávszélességű tömbön történik, így a
+    * memóriaigény O(radius), a futási idő O(n*radius). Ha a sáv lefedi a teljes mátrixot, az
+    * eredmény megegyezik a getWarpDistBetween(TimeSeries, TimeSeries, double[], double[]) eredményével.
+    * @param tsI első idősor
+    * @param tsJ második idősor
+    * @param radius a sáv sugara
+    * @param coordWeights koordináták súlyai
+    * @param pointWeights pontok súlyai
+    * @return távolság
+    */
+   public static double getSakoeChibaWarpDistBetween(TimeSeries tsI, TimeSeries tsJ, int radius,
+                                                     double[] coordWeights, double[] pointWeights)
    {
-      out.print(costMatrix[i][j]);
-      if (i != maxI)
-         out.print(",");
+      if (tsI.numOfDimensions() != tsJ.numOfDimensions())
+         throw new InternalError("ERROR:  cannot calculate the distance "
+                                 + "between vectors of different sizes.");
+
+      final int bandWidth = getSakoeChibaBandWidth(tsI.size(), tsJ.size(), radius);
+      return getSakoeChibaWarpDistBetween(tsI.toPackedArray(), tsI.size(), tsJ.toPackedArray(), tsJ.size(),
+                                          tsI.numOfDimensions(), radius, coordWeights, pointWeights,
+                                          new double[bandWidth], new double[bandWidth]);
+   }  // end getSakoeChibaWarpDistBetween(..)
+
+
+   /**
+    * A Sakoe-Chiba sávval korlátozott távolság primitív tömbökön dolgozó változata (a tömbök
+    * formátumát lásd getWarpDistBetween(double[], int, double[], int, int, double[], double[], double[], double[])).
+    * @param tsI első idősor pontjai
+    * @param sizeI első idősor hossza
+    * @param tsJ második idősor pontjai
+    * @param sizeJ második idősor hossza
+    * @param dims a pontok dimenziója
+    * @param radius a sáv sugara
+    * @param coordWeights koordináták súlyai
+    * @param pointWeights pontok súlyai
+    * @param lastBand munkaterület, legalább getSakoeChibaBandWidth(sizeI, sizeJ, radius) méretű
+    * @param currBand munkaterület, legalább getSakoeChibaBandWidth(sizeI, sizeJ, radius) méretű
+    * @return távolság
+    */
+   public static double getSakoeChibaWarpDistBetween(double[] tsI, int sizeI, double[] tsJ, int sizeJ, int dims,
+                                                     int radius, double[] coordWeights, double[] pointWeights,
+                                                     double[] lastBand, double[] currBand)
+   {
+      if (radius < 0)
+         radius = 0;
+
+      return bandedWarpDist(tsI, sizeI, tsJ, sizeJ, dims, radius, 0.0, coordWeights, pointWeights,
+                            lastBand, currBand);
    }
-   out.println();
-}
-out.flush();
-out.close();
-}
-catch (Exception e)
-{
-   System.out.println(e);
-   e.printStackTrace();
-}
- */
-      // Minimum Cost is at (maxIi,maxJ)
-      final double minimumCost = costMatrix[maxI][maxJ];
 
 
-      // Find the Warp Path by searching the matrix from the solution at
-      //    (maxI, maxJ) to the beginning at (0,0).  At each step move through
-      //    the matrix 1 step left, down, or diagonal, whichever has the
-      //    smallest cost.  Favoer diagonal moves and moves towards the i==j
-      //    axis to break ties.
-      final WarpPath minCostPath = new WarpPath(maxI+maxJ-1);
-      int i = maxI;
-      int j = maxJ;
-      minCostPath.addFirst(i, j);
-      while ((i>0) || (j>0))
-      {
-         // Find the costs of moving in all three possible directions (left,
-         //    down, and diagonal (down and left at the same time).
-         final double diagCost;
-         final double leftCost;
-         final double downCost;
-
-         if ((i>0) && (j>0))
-            diagCost = costMatrix[i-1][j-1];
-         else
-            diagCost = Double.POSITIVE_INFINITY;
+   /**
+    * A Sakoe-Chiba sáv legnagyobb szélessége egy oszlopban, azaz a munkaterületek szükséges mérete.
+    * @param sizeI első idősor hossza
+    * @param sizeJ második idősor hossza
+    * @param radius a sáv sugara
+    * @return sávszélesség
+    */
+   public static int getSakoeChibaBandWidth(int sizeI, int sizeJ, int radius)
+   {
+      return Math.min(2*Math.max(radius, 0)+2, Math.min(sizeI, sizeJ));
+   }
 
-         if (i > 0)
-            leftCost = costMatrix[i-1][j];
-         else
-            leftCost = Double.POSITIVE_INFINITY;
 
-         if (j > 0)
-            downCost = costMatrix[i][j-1];
-         else
-            downCost = Double.POSITIVE_INFINITY;
+   /**
+    * Két idősor távolsága Itakura paralelogrammával korlátozva. Az útvonal meredeksége (a két
+    * idősor hosszával normálva) 1/maxSlope és maxSlope közé esik, a paralelogramma csúcsai a
+    * két végpont. A számítás két, a paralelogramma legszélesebb oszlopának megfelelő méretű
+    * tömbön történik.
+    * @param tsI első idősor
+    * @param tsJ második idősor
+    * @param maxSlope a legnagyobb megengedett meredekség (nagyobb, mint 1)
+    * @param coordWeights koordináták súlyai
+    * @param pointWeights pontok súlyai
+    * @return távolság
+    */
+   public static double getItakuraWarpDistBetween(TimeSeries tsI, TimeSeries tsJ, double maxSlope,
+                                                  double[] coordWeights, double[] pointWeights)
+   {
+      if (tsI.numOfDimensions() != tsJ.numOfDimensions())
+         throw new InternalError("ERROR:  cannot calculate the distance "
+                                 + "between vectors of different sizes.");
 
-         // Determine which direction to move in.  Prefer moving diagonally and
-         //    moving towards the i==j axis of the matrix if there are ties.
-         if ((diagCost<=leftCost) && (diagCost<=downCost))
-         {
-            i--;
-            j--;
-         }
-         else if ((leftCost<diagCost) && (leftCost<downCost))
-            i--;
-         else if ((downCost<diagCost) && (downCost<leftCost))
-            j--;
-         else if (i <= j)  // leftCost==rightCost > diagCost
-            j--;
-         else   // leftCost==rightCost > diagCost
-            i--;
+      final int bandWidth = getItakuraBandWidth(tsI.size(), tsJ.size(), maxSlope);
+      return getItakuraWarpDistBetween(tsI.toPackedArray(), tsI.size(), tsJ.toPackedArray(), tsJ.size(),
+                                       tsI.numOfDimensions(), maxSlope, coordWeights, pointWeights,
+                                       new double[bandWidth], new double[bandWidth]);
+   }  // end getItakuraWarpDistBetween(..)
 
-         // Add the current step to the warp path.
-         minCostPath.addFirst(i, j);
-      }  // end while loop
 
-      return new TimeWarpInfo(minimumCost, minCostPath);
-   }  // end DynamicTimeWarp(..)
+   /**
+    * Az Itakura paralelogrammával korlátozott távolság primitív tömbökön dolgozó változata.
+    * @param tsI első idősor pontjai
+    * @param sizeI első idősor hossza
+    * @param tsJ második idősor pontjai
+    * @param sizeJ második idősor hossza
+    * @param dims a pontok dimenziója
+    * @param maxSlope a legnagyobb megengedett meredekség (nagyobb, mint 1)
+    * @param coordWeights koordináták súlyai
+    * @param pointWeights pontok súlyai
+    * @param lastBand munkaterület, legalább getItakuraBandWidth(sizeI, sizeJ, maxSlope) méretű
+    * @param currBand munkaterület, legalább getItakuraBandWidth(sizeI, sizeJ, maxSlope) méretű
+    * @return távolság
+    */
+   public static double getItakuraWarpDistBetween(double[] tsI, int sizeI, double[] tsJ, int sizeJ, int dims,
+                                                  double maxSlope, double[] coordWeights, double[] pointWeights,
+                                                  double[] lastBand, double[] currBand)
+   {
+      if (maxSlope <= 1.0)
+         throw new InternalError("ERROR:  the maximum slope of an Itakura parallelogram must be greater than 1.");
 
+      return bandedWarpDist(tsI, sizeI, tsJ, sizeJ, dims, 0, maxSlope, coordWeights, pointWeights,
+                            lastBand, currBand);
+   }
 
 
-   public static double getWarpDistBetween(TimeSeries tsI, TimeSeries tsJ, SearchWindow window, double[] coordWeights)
+   /**
+    * Az Itakura paralelogramma legnagyobb szélessége egy oszlopban, azaz a munkaterületek szükséges mérete.
+    * @param sizeI első idősor hossza
+    * @param sizeJ második idősor hossza
+    * @param maxSlope a legnagyobb megengedett meredekség
+    * @return sávszélesség
+    */
+   public static int getItakuraBandWidth(int sizeI, int sizeJ, double maxSlope)
    {
-      //     COST MATRIX:
-      //   5|_|_|_|_|_|_|E| E = min Global Cost
-      //   4|_|_|_|_|_|_|_| S = Start point
-      //   3|_|_|_|_|_|_|_| each cell = min global cost to get to that point
-      // j 2|_|_|_|_|_|_|_|
-      //   1|_|_|_|_|_|_|_|
-      //   0|S|_|_|_|_|_|_|
-      //     0 1 2 3 4 5 6
-      //            i
-      //   access is M(i,j)... column-row
-      final CostMatrix costMatrix = new PartialWindowMatrix(window);
-      final int maxI = tsI.size()-1;
-      final int maxJ = tsJ.size()-1;
+      // The band is calculated along the longer time series (see bandedWarpDist(..)).
+      final int longer = Math.max(sizeI, sizeJ);
+      final int shorter = Math.min(sizeI, sizeJ);
+
+      int width = 0;
+      for (int i=0; i<longer; i++)
+         width = Math.max(width, bandMaxJ(i, longer, shorter, 0, maxSlope)-bandMinJ(i, longer, shorter, 0, maxSlope)+1);
+
+      return width;
+   }  // end getItakuraBandWidth(..)
+
+
+   // Banded dynamic time warping on packed time series.  Only the cells bandMinJ(i)..bandMaxJ(i) of column i are
+   //    evaluated, every other cell is treated as if its cost was infinite.  Only the band of the current and of the
+   //    previous column is stored, indexed relative to the lowest row of the band.  Point weights are applied
+   //    exactly the same way as in the unconstrained version.
+   private static double bandedWarpDist(double[] tsI, int sizeI, double[] tsJ, int sizeJ, int dims, int radius,
+                                        double maxSlope, double[] coordWeights, double[] pointWeights,
+                                        double[] lastBand, double[] currBand)
+   {
+      // The band is described along the longer time series so that it advances at most one row per column.
+      if (sizeI < sizeJ)
+         return bandedWarpDist(tsJ, sizeJ, tsI, sizeI, dims, radius, maxSlope, coordWeights, pointWeights,
+                               lastBand, currBand);
+
+      final int maxI = sizeI-1;
+      final int maxJ = sizeJ-1;
 
-      // Get an iterator that traverses the window cells in the order that the cost matrix is filled.
-      //    (first to last row (1..maxI), bottom to top (1..MaxJ)
-      final Iterator matrixIterator = window.iterator();
+      // The first column has no previous column, use an empty range for it.
+      int lastMinJ = 1;
+      int lastMaxJ = 0;
 
-      while (matrixIterator.hasNext())
+      for (int i=0; i<=maxI; i++)   // i = columns
       {
-         final ColMajorCell currentCell = (ColMajorCell)matrixIterator.next();  // current cell being filled
-         final int i = currentCell.getCol();
-         final int j = currentCell.getRow();
+         // Swap the references between the two arrays.
+         final double[] temp = lastBand;
+         lastBand = currBand;
+         currBand = temp;
 
-         if ( (i==0) && (j==0) )      // bottom left cell (first row AND first column)
-            costMatrix.put(i, j, weightedEuclideanDist(tsI.getMeasurementVector(0), tsJ.getMeasurementVector(0), coordWeights));
-         else if (i == 0)             // first column
-         {
-            costMatrix.put(i, j, weightedEuclideanDist(tsI.getMeasurementVector(0), tsJ.getMeasurementVector(j), coordWeights) +
-                                 costMatrix.get(i, j-1));
-         }
-         else if (j == 0)             // first row
-         {
-            costMatrix.put(i, j, weightedEuclideanDist(tsI.getMeasurementVector(i), tsJ.getMeasurementVector(0), coordWeights) +
-                                 costMatrix.get(i-1, j));
-         }
-         else                         // not first column or first row
+         final int minJ = bandMinJ(i, sizeI, sizeJ, radius, maxSlope);
+         final int maxJInBand = bandMaxJ(i, sizeI, sizeJ, radius, maxSlope);
+         final int offsetI = i*dims;
+
+         for (int j=minJ; j<=maxJInBand; j++)  // j = rows
          {
-            final double minGlobalCost = Math.min(costMatrix.get(i-1, j),
-                                                  Math.min(costMatrix.get(i-1, j-1),
-                                                           costMatrix.get(i, j-1)));
-            costMatrix.put(i, j, minGlobalCost + weightedEuclideanDist(tsI.getMeasurementVector(i),
-                                                               tsJ.getMeasurementVector(j), coordWeights));
-         }  // end if
-      }  // end while loop
+            final double pointWeight = (i==0) ? pointWeights[j] : pointWeights[i];
+            final double localCost = pointWeight*weightedEuclideanDist(tsI, offsetI, tsJ, j*dims, dims, coordWeights);
+
+            if ( (i==0) && (j==0) )      // bottom left cell (first row AND first column)
+               currBand[0] = localCost;
+            else
+            {
+               // (i,j) = LocalCost(i,j) + minGlobalCost{(i-1,j),(i-1,j-1),(i,j-1)}, cells outside of the band
+               //    have an infinite cost
+               double minGlobalCost = Double.POSITIVE_INFINITY;
+               if ( (j>=lastMinJ) && (j<=lastMaxJ) )
+                  minGlobalCost = lastBand[j-lastMinJ];
+               if ( (j-1>=lastMinJ) && (j-1<=lastMaxJ) )
+                  minGlobalCost = Math.min(minGlobalCost, lastBand[j-1-lastMinJ]);
+               if (j > minJ)
+                  minGlobalCost = Math.min(minGlobalCost, currBand[j-1-minJ]);
+
+               currBand[j-minJ] = minGlobalCost + localCost;
+            }  // end if
+         }  // end for loop
 
-      // Minimum Cost is at (maxI, maxJ)
-      return costMatrix.get(maxI, maxJ);
+         lastMinJ = minJ;
+         lastMaxJ = maxJInBand;
+      }  // end for loop
 
-   }  // end getWarpDistBetween(...)
+      // Minimum Cost is at (maxI,maxJ), the last row is always in the band of the last column.
+      return currBand[maxJ-lastMinJ];
+   }  // end bandedWarpDist(..)
 
 
-   public static WarpPath getWarpPathBetween(TimeSeries tsI, TimeSeries tsJ, SearchWindow window, double[] weights)
+   // The lowest row of column i in the band (sizeI >= sizeJ).  A band always contains the cells closest to the
+   //    straight line between (0,0) and (maxI,maxJ), which is enough to keep a continuous warp path in it.
+   private static int bandMinJ(int i, int sizeI, int sizeJ, int radius, double maxSlope)
    {
-      return constrainedTimeWarp(tsI, tsJ, window, weights).getPath();
+      if (sizeI == 1)
+         return 0;
+
+      // ceil( i*(sizeJ-1)/(sizeI-1) - radius - 0.5 ), calculated on integers to avoid rounding problems
+      final long numerator = 2L*i*(sizeJ-1) - (2L*radius+1)*(sizeI-1);
+      final long denominator = 2L*(sizeI-1);
+      int minJ = (int)-floorDiv(-numerator, denominator);
+
+      if (maxSlope > 0.0)  // Itakura parallelogram: the lower sides of the parallelogram
+      {
+         final double slope = (double)(sizeJ-1)/(sizeI-1);
+         final double lower = Math.max(i*slope/maxSlope, (sizeJ-1) - maxSlope*(sizeI-1-i)*slope);
+         minJ = Math.min(minJ, (int)Math.ceil(lower-0.5));
+      }
+
+      return Math.max(minJ, 0);
+   }  // end bandMinJ(..)
+
+
+   // The highest row of column i in the band (sizeI >= sizeJ).
+   private static int bandMaxJ(int i, int sizeI, int sizeJ, int radius, double maxSlope)
+   {
+      if (sizeI == 1)
+         return sizeJ-1;
+
+      // floor( i*(sizeJ-1)/(sizeI-1) + radius + 0.5 )
+      final long numerator = 2L*i*(sizeJ-1) + (2L*radius+1)*(sizeI-1);
+      final long denominator = 2L*(sizeI-1);
+      int maxJ = (int)floorDiv(numerator, denominator);
+
+      if (maxSlope > 0.0)  // Itakura parallelogram: the upper sides of the parallelogram
+      {
+         final double slope = (double)(sizeJ-1)/(sizeI-1);
+         final double upper = Math.min(maxSlope*i*slope, (sizeJ-1) - (sizeI-1-i)*slope/maxSlope);
+         maxJ = Math.max(maxJ, (int)Math.floor(upper+0.5));
+      }
+
+      return Math.min(maxJ, sizeJ-1);
+   }  // end bandMaxJ(..)
+
+
+   private static long floorDiv(long x, long y)
+   {
+      final long q = x/y;
+      return ((x%y!=0) && ((x<0)!=(y<0))) ? q-1 : q;
    }
 
 
-   public static TimeWarpInfo getWarpInfoBetween(TimeSeries tsI, TimeSeries tsJ, SearchWindow window, double[] weights)
+   public static WarpPath getWarpPathBetween(TimeSeries tsI, TimeSeries tsJ, double[] weights)
    {
-      return constrainedTimeWarp(tsI, tsJ, window, weights);
+      return DynamicTimeWarp(tsI, tsJ, weights).getPath();
    }
 
 
-   private static TimeWarpInfo constrainedTimeWarp(TimeSeries tsI, TimeSeries tsJ, SearchWindow window, double []weights)
+   public static TimeWarpInfo getWarpInfoBetween(TimeSeries tsI, TimeSeries tsJ, double[] weights)
+   {
+      return DynamicTimeWarp(tsI, tsJ, weights);
+   }
+
+
+   /**
+    * Ugyanazt az útvonalat adja, mint a getWarpPathBetween(TimeSeries, TimeSeries, double[]), de a teljes
+    * költségmátrix tárolása nélkül (lásd LinearSpaceWarpPath), így nagyon hosszú idősorokra is használható.
+    * @param tsI első idősor
+    * @param tsJ második idősor
+    * @param weights koordináták súlyai
+    * @return az illesztés útvonala
+    */
+   public static WarpPath getLinearSpaceWarpPathBetween(TimeSeries tsI, TimeSeries tsJ, double[] weights)
+   {
+      return getLinearSpaceWarpInfoBetween(tsI, tsJ, weights).getPath();
+   }
+
+
+   /**
+    * Ugyanazt adja, mint a getWarpInfoBetween(TimeSeries, TimeSeries, double[]), de a teljes
+    * költségmátrix tárolása nélkül.
+    * @param tsI első idősor
+    * @param tsJ második idősor
+    * @param weights koordináták súlyai
+    * @return az illesztés távolsága és útvonala
+    */
+   public static TimeWarpInfo getLinearSpaceWarpInfoBetween(TimeSeries tsI, TimeSeries tsJ, final double[] weights)
+   {
+      if (tsI.numOfDimensions() != tsJ.numOfDimensions())
+         throw new InternalError("ERROR:  cannot calculate the distance "
+                                 + "between vectors of different sizes.");
+
+      final int dims = tsI.numOfDimensions();
+      final double[] pointsI = tsI.toPackedArray();
+      final double[] pointsJ = tsJ.toPackedArray();
+
+      return new LinearSpaceWarpPath(tsI.size(), tsJ.size())
+      {
+         double localCost(int i, int j)
+         {
+            return weightedEuclideanDist(pointsI, i*dims, pointsJ, j*dims, dims, weights);
+         }
+      }.findWarpInfo();
+   }  // end getLinearSpaceWarpInfoBetween(..)
+
+
+   // Full dynamic time warping that also finds the warp path.  The cost matrix is filled in tiles of TILE_COLUMNS
+   //    columns and TILE_ROWS rows so that the points and the costs used by a tile stay in the cache.  Only one
+   //    column of costs is stored, the warp path is recovered from the 2 bits per cell that record the direction the
+   //    traceback moves in from that cell.  The direction is decided when the cell is filled, by the same rule (and on
+   //    the same values) that a traceback over the full cost matrix uses, so the result is exactly the same.
+   private static TimeWarpInfo DynamicTimeWarp(TimeSeries tsI, TimeSeries tsJ, double[] weights)
    {
       //     COST MATRIX:
       //   5|_|_|_|_|_|_|E| E = min Global Cost
@@ -304,131 +560,154 @@ catch (Exception e)
       //     0 1 2 3 4 5 6
       //            i
       //   access is M(i,j)... column-row
-      final WindowMatrix costMatrix = new WindowMatrix(window);
-      final int maxI = tsI.size()-1;
-      final int maxJ = tsJ.size()-1;
 
-      // Get an iterator that traverses the window cells in the order that the cost matrix is filled.
-      //    (first to last row (1..maxI), bottom to top (1..MaxJ)
-      final Iterator matrixIterator = window.iterator();
+      if (tsI.numOfDimensions() != tsJ.numOfDimensions())
+         throw new InternalError("ERROR:  cannot calculate the distance "
+                                 + "between vectors of different sizes.");
 
-      while (matrixIterator.hasNext())
+      final int dims = tsI.numOfDimensions();
+      final double[] pointsI = tsI.toPackedArray();
+      final double[] pointsJ = tsJ.toPackedArray();
+      final int sizeJ = tsJ.size();
+      final int maxI = tsI.size()-1;
+      final int maxJ = sizeJ-1;
+
+      // costs[j] = M(i,j) for the last column i calculated at row j (the column to the left of the current tile
+      //    before the tile is calculated, the last column of the tile after it).
+      final double[] costs = new double[sizeJ];
+      // bottom[k] = M(firstI-1+k, firstJ-1), the row below the current tile (and the corner below and to the left).
+      final double[] bottom = new double[TILE_COLUMNS+1];
+      // Traceback directions, 2 bits per cell, cell (i,j) is at i*sizeJ+j.
+      final long[] directions = new long[(int)(((long)tsI.size()*sizeJ+CELLS_PER_DIRECTION_WORD-1)
+                                               /CELLS_PER_DIRECTION_WORD)];
+
+      for (int firstI=0; firstI<=maxI; firstI+=TILE_COLUMNS)   // columns of tiles
       {
-         final ColMajorCell currentCell = (ColMajorCell)matrixIterator.next();  // current cell being filled
-         final int i = currentCell.getCol();
-         final int j = currentCell.getRow();
+         final int lastI = Math.min(firstI+TILE_COLUMNS-1, maxI);
+         Arrays.fill(bottom, Double.POSITIVE_INFINITY);   // there is nothing below the first row
 
-         if ( (i==0) && (j==0) )      // bottom left cell (first row AND first column)
-            costMatrix.put(i, j, weightedEuclideanDist(tsI.getMeasurementVector(0), tsJ.getMeasurementVector(0), weights));
-         else if (i == 0)             // first column
+         for (int firstJ=0; firstJ<=maxJ; firstJ+=TILE_ROWS)   // tiles in the column, from the bottom up
          {
-            costMatrix.put(i, j, weightedEuclideanDist(tsI.getMeasurementVector(0), tsJ.getMeasurementVector(j), weights) +
-                                 costMatrix.get(i, j-1));
-         }
-         else if (j == 0)             // first row
-         {
-            costMatrix.put(i, j, weightedEuclideanDist(tsI.getMeasurementVector(i), tsJ.getMeasurementVector(0), weights) +
-                                 costMatrix.get(i-1, j));
-         }
-         else                         // not first column or first row
-         {
-        	 
-        	//Az improved DTW algoritmus szerinti távolság kiszámítása
-        	final double cost1 = costMatrix.get(i-1, j) + getLocalCost(tsI, tsJ, i, j, weights);
-        	
-        	final double cost2 = costMatrix.get(i-1, j-1) + getLocalCost(tsI, tsJ, i, j, weights);
-
-        	final double cost3 = costMatrix.get(i, j-1) + getLocalCost(tsI, tsJ, i, j, weights);
-        	
-            final double minCost = Math.min(cost1, Math.min(cost2, cost3));
-            
-            costMatrix.put(i, j, minCost);
-         }  // end if
-      }  // end while loop
+            final int lastJ = Math.min(firstJ+TILE_ROWS-1, maxJ);
+
+            // M(firstI-1,lastJ) is overwritten by the tile, but it is the corner of the tile above.
+            double prevTop = (firstI>0) ? costs[lastJ] : Double.POSITIVE_INFINITY;
+
+            for (int i=firstI; i<=lastI; i++)   // i = columns
+            {
+               final int k = i-firstI;
+               final int offsetI = i*dims;
+               final long cellOffset = (long)i*sizeJ;
+               double diagCost = bottom[k];    // M(i-1,j-1)
+               double downCost = bottom[k+1];  // M(i,j-1)
+
+               for (int j=firstJ; j<=lastJ; j++)  // j = rows
+               {
+                  final double leftCost = (i>0) ? costs[j] : Double.POSITIVE_INFINITY;   // M(i-1,j)
+                  final double localCost = weightedEuclideanDist(pointsI, offsetI, pointsJ, j*dims, dims, weights);
+
+                  final double cost;
+                  if ( (i==0) && (j==0) )
+                     cost = localCost;
+                  else
+                  {
+                     // (i,j) = LocalCost(i,j) + minGlobalCost{(i-1,j),(i-1,j-1),(i,j-1)}
+                     cost = Math.min(leftCost, Math.min(diagCost, downCost)) + localCost;
+
+                     final int direction = traceDirection(i, j, diagCost, leftCost, downCost);
+                     if (direction != DIAGONAL)
+                     {
+                        final long cell = cellOffset+j;
+                        directions[(int)(cell/CELLS_PER_DIRECTION_WORD)] |=
+                              (long)direction << (2*(int)(cell%CELLS_PER_DIRECTION_WORD));
+                     }  // end if
+                  }  // end if
+
+                  costs[j] = cost;
+                  diagCost = leftCost;
+                  downCost = cost;
+               }  // end for loop
+
+               // The column below column i of the tile above is no longer needed by this tile.
+               bottom[k] = prevTop;
+               prevTop = costs[lastJ];
+            }  // end for loop
+
+            bottom[lastI-firstI+1] = prevTop;
+         }  // end for loop
+      }  // end for loop
 
-      // Minimum Cost is at (maxI, maxJ)
-      final double minimumCost = costMatrix.get(maxI, maxJ);
+      // Minimum Cost is at (maxI,maxJ)
+      final double minimumCost = costs[maxJ];
 
-/*
-try
-{
-final PrintWriter out = new PrintWriter(new FileWriter("matrix2.csv"));
-for (int j=maxJ; j>=0; j--)
-{
-   for (int i=0; i<=maxI; i++)
-   {
-      out.print(costMatrix.get(i, j));
-      if (i != maxI)
-         out.print(",");
-   }
-   out.println();
-}
-out.flush();
-out.close();
-}
-catch (Exception e)
-{
-   System.out.println(e);
-   e.printStackTrace();
-}
-*/
-      // Find the Warp Path by searching the matrix from the solution at
-      //    (maxI, maxJ) to the beginning at (0,0).  At each step move through
-      //    the matrix 1 step left, down, or diagonal, whichever has the
-      //    smallest cost.  Favor diagonal moves and moves towards the i==j
-      //    axis to break ties.
+      // Find the Warp Path by following the recorded directions from the solution at (maxI, maxJ) to the beginning
+      //    at (0,0).
       final WarpPath minCostPath = new WarpPath(maxI+maxJ-1);
       int i = maxI;
       int j = maxJ;
       minCostPath.addFirst(i, j);
       while ((i>0) || (j>0))
       {
-         // Find the costs of moving in all three possible directions (left,
-         //    down, and diagonal (down and left at the same time).
-         final double diagCost;
-         final double leftCost;
-         final double downCost;
-
-         if ((i>0) && (j>0))
-            diagCost = costMatrix.get(i-1, j-1);
-         else
-            diagCost = Double.POSITIVE_INFINITY;
-
-         if (i > 0)
-            leftCost = costMatrix.get(i-1, j);
-         else
-            leftCost = Double.POSITIVE_INFINITY;
-
-         if (j > 0)
-            downCost = costMatrix.get(i, j-1);
-         else
-            downCost = Double.POSITIVE_INFINITY;
-
-         // Determine which direction to move in.  Prefer moving diagonally and
-         //    moving towards the i==j axis of the matrix if there are ties.
-         if ((diagCost<=leftCost) && (diagCost<=downCost))
+         final long cell = (long)i*sizeJ+j;
+         final int direction = (int)(directions[(int)(cell/CELLS_PER_DIRECTION_WORD)]
+                                     >>> (2*(int)(cell%CELLS_PER_DIRECTION_WORD))) & 3;
+         if (direction == DIAGONAL)
          {
             i--;
             j--;
          }
-         else if ((leftCost<diagCost) && (leftCost<downCost))
+         else if (direction == LEFT)
             i--;
-         else if ((downCost<diagCost) && (downCost<leftCost))
-            j--;
-         else if (i <= j)  // leftCost==rightCost > diagCost
+         else
             j--;
-         else   // leftCost==rightCost > diagCost
-            i--;
 
          // Add the current step to the warp path.
          minCostPath.addFirst(i, j);
       }  // end while loop
 
-      // Free any rescources associated with the costMatrix (a swap file may have been created if the swa file did not
-      //    fit into main memory).
-      costMatrix.freeMem();
-
       return new TimeWarpInfo(minimumCost, minCostPath);
+   }  // end DynamicTimeWarp(..)
+
+
+   // The direction of the traceback from cell (i,j) given the costs of the three neighbouring cells (infinite outside
+   //    of the matrix).  Prefer moving diagonally and moving towards the i==j axis of the matrix if there are ties.
+   static int traceDirection(int i, int j, double diagCost, double leftCost, double downCost)
+   {
+      if ((diagCost<=leftCost) && (diagCost<=downCost))
+         return DIAGONAL;
+      else if ((leftCost<diagCost) && (leftCost<downCost))
+         return LEFT;
+      else if ((downCost<diagCost) && (downCost<leftCost))
+         return DOWN;
+      else if (i <= j)  // leftCost==rightCost > diagCost
+         return DOWN;
+      else   // leftCost==rightCost > diagCost
+         return LEFT;
+   }  // end traceDirection(..)
+
+
+
+   public static double getWarpDistBetween(TimeSeries tsI, TimeSeries tsJ, SearchWindow window, double[] coordWeights)
+   {
+      return new WindowedWarpEngine(coordWeights).getWarpDistBetween(tsI, tsJ, window);
+   }
+
+
+   public static WarpPath getWarpPathBetween(TimeSeries tsI, TimeSeries tsJ, SearchWindow window, double[] weights)
+   {
+      return constrainedTimeWarp(tsI, tsJ, window, weights).getPath();
+   }
+
+
+   public static TimeWarpInfo getWarpInfoBetween(TimeSeries tsI, TimeSeries tsJ, SearchWindow window, double[] weights)
+   {
+      return constrainedTimeWarp(tsI, tsJ, window, weights);
+   }
+
+
+   private static TimeWarpInfo constrainedTimeWarp(TimeSeries tsI, TimeSeries tsJ, SearchWindow window, double []weights)
+   {
+      return new WindowedWarpEngine(weights).getWarpInfoBetween(tsI, tsJ, window);
    }  // end ConstrainedTimeWarp
 
 
@@ -458,12 +737,32 @@ catch (Exception e)
          throw new InternalError("ERROR:  cannot calculate the distance "
                                  + "between vectors of different sizes.");
 
+      return weightedEuclideanDist(vector1, 0, vector2, 0, vector1.length, weights);
+   }  // end class euclideanDist(..)
+
+
+   /**
+    * Súlyozott euklideszi távolság sorfolytonosan tárolt pontok között.
+    * @param points1 első pontokat tartalmazó tömb
+    * @param offset1 első pont kezdőindexe
+    * @param points2 második pontokat tartalmazó tömb
+    * @param offset2 második pont kezdőindexe
+    * @param dims pontok dimenziója
+    * @param weights komponensek súlyai
+    * @return súlyozott távolság
+    */
+   static double weightedEuclideanDist(double[] points1, int offset1, double[] points2, int offset2, int dims,
+                                       double[] weights)
+   {
       double sqSum = 0.0;
-      for (int x=0; x<vector1.length; x++)
-          sqSum += (Math.pow(vector1[x]-vector2[x], 2.0))*weights[x];
+      for (int x=0; x<dims; x++)
+      {
+         final double diff = points1[offset1+x]-points2[offset2+x];
+         sqSum += (diff*diff)*weights[x];
+      }
 
       return Math.sqrt(sqSum);
-   }  // end class euclideanDist(..)
+   }  // end weightedEuclideanDist(..)
    
    private static double euclideanDist(double[] vector1, double[] vector2)
    {
@@ -0,0 +1,75 @@
+/*
+ * ImprovedDTWEngine.java
+ *
+ * Az ImprovedDTW algoritmus távolságmotorként.
+ */
+
+package com.dtw;
+
+import com.timeseries.TimeSeries;
+
+import java.util.Arrays;
+
+
+/**
+ * A teljes, súlyozott DTW algoritmus (ImprovedDTW) adott koordináta súlyokkal. Pontsúlyok nélkül
+ * minden pont súlya 1.
+ */
+public class ImprovedDTWEngine implements DistanceEngine
+{
+   // PRIVATE DATA
+   private final double[] coordWeights;
+
+
+   // CONSTRUCTOR
+   /**
+    * @param coordWeights koordináták súlyai
+    */
+   public ImprovedDTWEngine(double[] coordWeights)
+   {
+      this.coordWeights = (coordWeights == null) ? null : coordWeights.clone();
+   }
+
+
+   // FUNCTIONS
+   public double getWarpDistBetween(TimeSeries tsI, TimeSeries tsJ)
+   {
+      return getWarpDistBetween(tsI, tsJ, null, Double.POSITIVE_INFINITY);
+   }
+
+
+   public double getWarpDistBetween(TimeSeries tsI, TimeSeries tsJ, double cutoff)
+   {
+      return getWarpDistBetween(tsI, tsJ, null, cutoff);
+   }
+
+
+   public double getWarpDistBetween(TimeSeries tsI, TimeSeries tsJ, double[] pointWeights, double cutoff)
+   {
+      final double[] weights = (pointWeights != null) ? pointWeights :
+                               unitWeights(Math.max(tsI.size(), tsJ.size()));
+      return ImprovedDTW.getWarpDistBetween(tsI, tsJ, coordWeights, weights, cutoff);
+   }
+
+
+   public TimeWarpInfo getWarpInfoBetween(TimeSeries tsI, TimeSeries tsJ)
+   {
+      return ImprovedDTW.getWarpInfoBetween(tsI, tsJ, coordWeights);
+   }
+
+
+   public double[] getCoordWeights()
+   {
+      return (coordWeights == null) ? null : coordWeights.clone();
+   }
+
+
+   // Point weights of 1 (multiplying by 1 does not change the local costs).
+   private static double[] unitWeights(int size)
+   {
+      final double[] weights = new double[size];
+      Arrays.fill(weights, 1.0);
+      return weights;
+   }
+
+}  // end class ImprovedDTWEngine
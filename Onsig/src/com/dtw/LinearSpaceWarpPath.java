@@ -0,0 +1,197 @@
+/*
+ * LinearSpaceWarpPath.java
+ *
+ * Teljes DTW útvonal keresése a teljes költségmátrix tárolása nélkül.
+ */
+
+package com.dtw;
+
+
+// Finds the same warp path as the full dynamic time warping algorithms of DTW and ImprovedDTW without storing the
+//    whole cost matrix.  The columns of the cost matrix are split recursively: the column in the middle is calculated
+//    (from the column left of the range, which is stored by the caller), the path is found in the right half first,
+//    which tells in which row the path leaves it, and then in the left half.  Once a range is small enough its costs
+//    are stored and the path is traced back through it by exactly the same rules that the full algorithms use, on the
+//    same cost values (every cost is calculated by the same arithmetic in the same order).  Only the rows up to the
+//    row the path enters a range in are calculated, the costs below it do not depend on the cells above it.
+//
+//    The memory used is one column per level of recursion plus one block of at most BLOCK_CELLS costs, that is
+//    O(sizeJ*log(sizeI)), and the running time is O(sizeI*sizeJ*log(sizeI/blockColumns)).
+abstract class LinearSpaceWarpPath
+{
+   // CONSTANTS
+   private final static int BLOCK_CELLS = 1 << 16;   // largest range whose costs are stored for the traceback
+
+
+   // PRIVATE DATA
+   private final int sizeI;
+   private final int sizeJ;
+   private double minimumCost;
+
+
+   // CONSTRUCTOR
+   LinearSpaceWarpPath(int sizeI, int sizeJ)
+   {
+      this.sizeI = sizeI;
+      this.sizeJ = sizeJ;
+   }
+
+
+   // The local cost of aligning point i of the first time series with point j of the second.
+   abstract double localCost(int i, int j);
+
+
+   // FUNCTIONS
+   TimeWarpInfo findWarpInfo()
+   {
+      final int maxI = sizeI-1;
+      final int maxJ = sizeJ-1;
+
+      final WarpPath minCostPath = new WarpPath(maxI+maxJ-1);
+      minCostPath.addFirst(maxI, maxJ);
+      trace(0, maxI, maxJ, null, minCostPath);
+
+      return new TimeWarpInfo(minimumCost, minCostPath);
+   }  // end findWarpInfo()
+
+
+   // Finds the part of the warp path in the columns firstI..lastI.  The path has already reached the cell
+   //    (lastI,row).  'before' holds the costs of column firstI-1 (null if firstI==0).  The cells of the path are
+   //    added to 'path' until it leaves the range, the row of the first cell left of the range is returned.
+   private int trace(int firstI, int lastI, int row, double[] before, WarpPath path)
+   {
+      if ( (firstI==lastI) || ((long)(lastI-firstI+1)*(row+1) <= BLOCK_CELLS) )
+         return traceBlock(firstI, lastI, row, before, path);
+
+      final int midI = (firstI+lastI)/2;
+
+      // Calculate column midI from column firstI-1.
+      double[] lastCol = new double[row+1];
+      double[] currCol = new double[row+1];
+      for (int i=firstI; i<=midI; i++)
+      {
+         fillColumn(i, (i==firstI) ? before : lastCol, currCol, row);
+
+         // Swap the references between the two arrays.
+         final double[] temp = lastCol;
+         lastCol = currCol;
+         currCol = temp;
+      }  // end for loop
+      currCol = null;
+
+      final int midRow = trace(midI+1, lastI, row, lastCol, path);
+      lastCol = null;
+
+      return trace(firstI, midI, midRow, before, path);
+   }  // end trace(..)
+
+
+   // Stores the costs of the columns firstI..lastI (rows 0..row) and traces the path back through them.
+   private int traceBlock(int firstI, int lastI, int row, double[] before, WarpPath path)
+   {
+      final int height = row+1;
+      final double[] block = new double[(lastI-firstI+1)*height];   // M(i,j) is at (i-firstI)*height+j
+
+      double[] lastCol = new double[height];
+      double[] currCol = new double[height];
+      for (int i=firstI; i<=lastI; i++)
+      {
+         fillColumn(i, (i==firstI) ? before : lastCol, currCol, row);
+         System.arraycopy(currCol, 0, block, (i-firstI)*height, height);
+
+         // Swap the references between the two arrays.
+         final double[] temp = lastCol;
+         lastCol = currCol;
+         currCol = temp;
+      }  // end for loop
+
+      if ( (lastI==sizeI-1) && (row==sizeJ-1) )   // the last cell of the matrix is in the first block traced
+         minimumCost = lastCol[row];
+
+      // Find the Warp Path by searching the matrix from the (lastI, row) until it leaves the block.  At each step
+      //    move through the matrix 1 step left, down, or diagonal, whichever has the smallest cost.  Favor diagonal
+      //    moves and moves towards the i==j axis to break ties.
+      int i = lastI;
+      int j = row;
+      while ( (i>=firstI) && ((i>0) || (j>0)) )
+      {
+         // Find the costs of moving in all three possible directions (left,
+         //    down, and diagonal (down and left at the same time).
+         final double diagCost;
+         final double leftCost;
+         final double downCost;
+
+         if ((i>0) && (j>0))
+            diagCost = cost(block, before, firstI, height, i-1, j-1);
+         else
+            diagCost = Double.POSITIVE_INFINITY;
+
+         if (i > 0)
+            leftCost = cost(block, before, firstI, height, i-1, j);
+         else
+            leftCost = Double.POSITIVE_INFINITY;
+
+         if (j > 0)
+            downCost = cost(block, before, firstI, height, i, j-1);
+         else
+            downCost = Double.POSITIVE_INFINITY;
+
+         // Determine which direction to move in.  Prefer moving diagonally and
+         //    moving towards the i==j axis of the matrix if there are ties.
+         if ((diagCost<=leftCost) && (diagCost<=downCost))
+         {
+            i--;
+            j--;
+         }
+         else if ((leftCost<diagCost) && (leftCost<downCost))
+            i--;
+         else if ((downCost<diagCost) && (downCost<leftCost))
+            j--;
+         else if (i <= j)  // leftCost==rightCost > diagCost
+            j--;
+         else   // leftCost==rightCost > diagCost
+            i--;
+
+         // Add the current step to the warp path.
+         path.addFirst(i, j);
+      }  // end while loop
+
+      return j;
+   }  // end traceBlock(..)
+
+
+   private static double cost(double[] block, double[] before, int firstI, int height, int i, int j)
+   {
+      if (i < firstI)
+         return before[j];
+      else
+         return block[(i-firstI)*height+j];
+   }
+
+
+   // Calculates rows 0..row of column i from the same rows of column i-1 ('prevCol' is not used if i==0).
+   private void fillColumn(int i, double[] prevCol, double[] currCol, int row)
+   {
+      if (i == 0)
+      {
+         // Calculate the values for the first column, from the bottom up.
+         currCol[0] = localCost(0, 0);
+         for (int j=1; j<=row; j++)
+            currCol[j] = currCol[j-1] + localCost(0, j);
+      }
+      else
+      {
+         // Calculate the value for the bottom row of the current column
+         //    (i,0) = LocalCost(i,0) + GlobalCost(i-1,0)
+         currCol[0] = prevCol[0] + localCost(i, 0);
+
+         for (int j=1; j<=row; j++)  // j = rows
+         {
+            // (i,j) = LocalCost(i,j) + minGlobalCost{(i-1,j),(i-1,j-1),(i,j-1)}
+            final double minGlobalCost = Math.min(prevCol[j], Math.min(prevCol[j-1], currCol[j-1]));
+            currCol[j] = minGlobalCost + localCost(i, j);
+         }  // end for loop
+      }  // end if
+   }  // end fillColumn(..)
+
+}  // end class LinearSpaceWarpPath
@@ -0,0 +1,105 @@
+/*
+ * LocalCostColumn.java
+ *
+ * A súlyozott euklideszi helyi költségek egy teljes oszlopának számítása.
+ */
+
+package com.dtw;
+
+import com.timeseries.TimeSeries;
+
+import java.util.Arrays;
+
+
+/**
+ * Egy idősor pontjai koordinátánként külön tömbben (oszlopfolytonosan) tárolva, amelyből egy
+ * másik idősor egy pontjának és az idősor összes (vagy egy szakasznyi) pontjának súlyozott
+ * euklideszi távolsága egyszerre számolható. A belső ciklus egy koordináta tömbjén halad végig
+ * folytonosan, ezért a JIT fordító vektorizálni tudja. Az eredmény bitre megegyezik az
+ * ImprovedDTW által pontonként számolt távolsággal (a koordinátákat ugyanabban a sorrendben
+ * adja össze).
+ */
+public class LocalCostColumn
+{
+   // PRIVATE DATA
+   private final double[][] coords;   // coords[x][j] = x. coordinate of the j. point
+   private final double[] weights;
+   private final int size;
+
+
+   // CONSTRUCTORS
+   /**
+    * Előállítja egy idősor oszlopfolytonos alakját.
+    * @param ts az idősor
+    * @param coordWeights koordináták súlyai
+    */
+   public LocalCostColumn(TimeSeries ts, double[] coordWeights)
+   {
+      this(ts.toPackedArray(), ts.size(), ts.numOfDimensions(), coordWeights);
+   }
+
+
+   /**
+    * Előállítja egy sorfolytonosan tárolt idősor (lásd TimeSeries.toPackedArray()) oszlopfolytonos alakját.
+    * @param points az idősor pontjai
+    * @param size az idősor hossza
+    * @param dims a pontok dimenziója
+    * @param coordWeights koordináták súlyai
+    */
+   public LocalCostColumn(double[] points, int size, int dims, double[] coordWeights)
+   {
+      this.size = size;
+      this.weights = coordWeights;
+      this.coords = new double[dims][size];
+
+      for (int j=0; j<size; j++)
+         for (int x=0; x<dims; x++)
+            coords[x][j] = points[j*dims+x];
+   }  // end Constructor
+
+
+   // FUNCTIONS
+   public int size()
+   {
+      return size;
+   }
+
+
+   public int numOfDimensions()
+   {
+      return coords.length;
+   }
+
+
+   /**
+    * Kiszámítja egy pont súlyozott euklideszi távolságát az idősor fromJ. és toJ. pontja között
+    * (a határokat is beleértve) lévő összes ponttól.
+    * @param points a pontot tartalmazó sorfolytonos tömb
+    * @param offset a pont kezdőindexe
+    * @param fromJ az első pont indexe
+    * @param toJ az utolsó pont indexe
+    * @param dest ide kerülnek a távolságok: a j. ponté a dest[j-fromJ] helyre
+    */
+   public void getLocalCosts(double[] points, int offset, int fromJ, int toJ, double[] dest)
+   {
+      final int count = toJ-fromJ+1;
+      Arrays.fill(dest, 0, count, 0.0);
+
+      for (int x=0; x<coords.length; x++)   // coordinates in the outer loop, the inner one is sequential
+      {
+         final double coord = points[offset+x];
+         final double weight = weights[x];
+         final double[] column = coords[x];
+
+         for (int j=fromJ, k=0; k<count; j++, k++)
+         {
+            final double diff = coord-column[j];
+            dest[k] += (diff*diff)*weight;
+         }
+      }  // end for loop
+
+      for (int k=0; k<count; k++)
+         dest[k] = Math.sqrt(dest[k]);
+   }  // end getLocalCosts(..)
+
+}  // end class LocalCostColumn
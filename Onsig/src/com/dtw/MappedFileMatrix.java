@@ -0,0 +1,105 @@
+/*
+ * MappedFileMatrix.java
+ *
+ * Költségmátrix memóriába leképezett ideiglenes fájlban.
+ */
+
+package com.dtw;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+
+
+// A cost matrix that stores the cells of the search window in a memory mapped temporary file, a cell is read and
+//    written directly in the mapping, so the operating system only has to page the file in and out.  The file is
+//    created in the directory given by the "com.dtw.swapDir" system property (the default temporary directory if it
+//    is not set).  Where the operating system allows it the file is deleted as soon as it is mapped, so nothing is
+//    left behind even if freeMem() is never called, otherwise freeMem() deletes it.
+class MappedFileMatrix extends ChunkedBufferMatrix
+{
+   // CONSTANTS
+   private static final String SWAP_DIR_PROPERTY = "com.dtw.swapDir";
+
+
+   // PRIVATE DATA
+   private File swapFile;
+
+
+   // CONSTRUCTOR
+   MappedFileMatrix(SearchWindow searchWindow)
+   {
+      super(searchWindow);
+
+      RandomAccessFile cellValuesFile = null;
+      String swapPath = null;
+      try
+      {
+         swapFile = File.createTempFile("swap", ".matrix", swapDirectory());
+         swapPath = swapFile.getPath();   // freeMem() drops 'swapFile' if the mapping fails
+         cellValuesFile = new RandomAccessFile(swapFile, "rw");
+
+         final DoubleBuffer[] chunks = new DoubleBuffer[numOfChunks()];
+         long position = 0;
+         for (int c=0; c<chunks.length; c++)
+         {
+            final long length = 8L*chunkLength(c);
+            chunks[c] = cellValuesFile.getChannel().map(FileChannel.MapMode.READ_WRITE, position, length)
+                                      .order(ByteOrder.nativeOrder()).asDoubleBuffer();
+            position += length;
+         }  // end for loop
+         setChunks(chunks);
+      }
+      catch (IOException e)
+      {
+         freeMem();
+         throw new InternalError("ERROR:  Unable to create swap file: " + e.getMessage());
+      }
+      finally
+      {
+         // The mapping stays valid after the file is closed (and, on most systems, deleted).
+         try
+         {
+            if (cellValuesFile != null)
+               cellValuesFile.close();
+         }
+         catch (IOException e)
+         {
+            System.err.println("unable to close swap file '" + swapPath + "'");
+         }  // end try
+      }  // end try
+
+      if ( (swapFile!=null) && swapFile.delete() )
+         swapFile = null;
+   }  // end Constructor
+
+
+
+   // PUBLIC FUNCTIONS
+   // Releases the mapping and deletes the swap file if it still exists.  The matrix cannot be used after this.
+   public void freeMem()
+   {
+      super.freeMem();
+
+      if ( (swapFile!=null) && !swapFile.delete() )
+         swapFile.deleteOnExit();   // still mapped on systems that do not allow deleting it
+      swapFile = null;
+   }  // end freeMem()
+
+
+   private static File swapDirectory()
+   {
+      final String dir = System.getProperty(SWAP_DIR_PROPERTY);
+      if (dir == null)
+         return null;   // the default temporary-file directory
+
+      final File swapDir = new File(dir);
+      if (!swapDir.isDirectory() && !swapDir.mkdirs())
+         throw new InternalError("ERROR:  Unable to create the swap directory: " + swapDir);
+      return swapDir;
+   }  // end swapDirectory()
+
+}  // end class MappedFileMatrix
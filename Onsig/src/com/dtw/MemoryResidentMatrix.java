@@ -15,17 +15,33 @@ class MemoryResidentMatrix implements CostMatrix
 
 
    // PRIVATE DATA
-   private final SearchWindow window;
+   private SearchWindow window;
    private double[] cellValues;
    private int[] colOffsets;
+   private int size;
 
 
    // CONSTRUCTOR
    MemoryResidentMatrix(SearchWindow searchWindow)
+   {
+      cellValues = new double[searchWindow.size()];
+      colOffsets = new int[searchWindow.maxI()+1];
+      reset(searchWindow);
+   }  // end Constructor
+
+
+
+   // FUNCTIONS
+   // Makes the matrix store the cells of another search window.  The arrays are only reallocated if they are too
+   //    short, the values of the cells are undefined until they are put into the matrix.
+   void reset(SearchWindow searchWindow)
    {
       window = searchWindow;
-      cellValues = new double[window.size()];
-      colOffsets = new int[window.maxI()+1];
+      size = window.size();
+      if (cellValues.length < size)
+         cellValues = new double[size];
+      if (colOffsets.length < window.maxI()+1)
+         colOffsets = new int[window.maxI()+1];
 
       // Fill in the offset matrix
       int currentOffset = 0;
@@ -34,7 +50,14 @@ class MemoryResidentMatrix implements CostMatrix
          colOffsets[i] = currentOffset;
          currentOffset += window.maxJforI(i)-window.minJforI(i)+1;
       }
-   }  // end Constructor
+   }  // end reset(.)
+
+
+   // The number of cells the matrix can store without reallocating its arrays.
+   int capacity()
+   {
+      return cellValues.length;
+   }
 
 
 
@@ -62,7 +85,7 @@ class MemoryResidentMatrix implements CostMatrix
 
    public int size()
    {
-      return cellValues.length;
+      return size;
    }
 
 }  // end class MemoryResidentMatrix
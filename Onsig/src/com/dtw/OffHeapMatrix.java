@@ -0,0 +1,29 @@
+/*
+ * OffHeapMatrix.java
+ *
+ * Költségmátrix a heapen kívüli (direct) memóriában.
+ */
+
+package com.dtw;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+
+
+// A cost matrix in direct buffers: it does not use the heap (and is not moved by the garbage collector), but it is
+//    still in main memory.
+class OffHeapMatrix extends ChunkedBufferMatrix
+{
+   // CONSTRUCTOR
+   OffHeapMatrix(SearchWindow searchWindow)
+   {
+      super(searchWindow);
+
+      final DoubleBuffer[] chunks = new DoubleBuffer[numOfChunks()];
+      for (int c=0; c<chunks.length; c++)
+         chunks[c] = ByteBuffer.allocateDirect(8*chunkLength(c)).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+      setChunks(chunks);
+   }  // end Constructor
+
+}  // end class OffHeapMatrix
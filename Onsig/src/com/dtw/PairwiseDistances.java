@@ -0,0 +1,103 @@
+/*
+ * PairwiseDistances.java
+ *
+ * Idősorok páronkénti távolságai párhuzamosan.
+ */
+
+package com.dtw;
+
+import com.timeseries.TimeSeries;
+import com.util.Parallel;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+
+/**
+ * Idősorok páronkénti távolságmátrixának alsó háromszöge (az [i][j] elem, j<i, az i. és a j.
+ * idősor távolsága), csak a távolságokat számolva. A párokat sorfolytonos sorrendben (i szerint,
+ * azon belül j szerint) egyenlő számú párt tartalmazó, összefüggő csempékre osztja, és a csempéket
+ * párhuzamosan számolja. Minden pár a mátrix egy saját elemébe kerül, így a szálak nem írnak közös
+ * adatot. A távolságmotornak több szálból is használhatónak kell lennie.
+ */
+public class PairwiseDistances
+{
+   // CONSTANTS
+   private static final int TILES_PER_THREAD = 4;   // more tiles than threads to balance the uneven pair costs
+
+
+   // CONSTRUCTOR
+   private PairwiseDistances()
+   {
+   }
+
+
+   // FUNCTIONS
+   /**
+    * A páronkénti távolságok az alapértelmezett Executorral (lásd Parallel).
+    * @param series idősorok
+    * @param engine távolságmotor
+    * @return series.size() x series.size() méretű mátrix, a j<i elemek kitöltve
+    */
+   public static double[][] lowerTriangle(List<TimeSeries> series, DistanceEngine engine)
+   {
+      return lowerTriangle(series, engine, Parallel.getDefaultExecutor(), Parallel.getDefaultParallelism());
+   }
+
+
+   /**
+    * A páronkénti távolságok a megadott Executorral.
+    * @param series idősorok
+    * @param engine távolságmotor
+    * @param executor a szálakat adó Executor (null esetén a hívó szálon számol)
+    * @param parallelism az egyszerre dolgozó szálak legnagyobb száma
+    * @return series.size() x series.size() méretű mátrix, a j<i elemek kitöltve
+    */
+   public static double[][] lowerTriangle(final List<TimeSeries> series, final DistanceEngine engine,
+                                          Executor executor, int parallelism)
+   {
+      final int size = series.size();
+      final double[][] distances = new double[size][size];
+      final long numOfPairs = (long)size*(size-1)/2;
+      if (numOfPairs == 0)
+         return distances;
+
+      final int numOfTiles = (int)Math.min(numOfPairs, (long)Math.max(parallelism, 1)*TILES_PER_THREAD);
+      Parallel.forEach(numOfTiles, new Parallel.IndexedTask()
+      {
+         public void run(int tile)
+         {
+            // Pairs firstPair..lastPair-1 in row-major order, pair (i,j) is number i*(i-1)/2+j.
+            final long firstPair = numOfPairs*tile/numOfTiles;
+            final long lastPair = numOfPairs*(tile+1)/numOfTiles;
+
+            int i = rowOfPair(firstPair);
+            int j = (int)(firstPair - (long)i*(i-1)/2);
+            for (long pair=firstPair; pair<lastPair; pair++)
+            {
+               distances[i][j] = engine.getWarpDistBetween(series.get(i), series.get(j));
+               if (++j == i)
+               {
+                  i++;
+                  j = 0;
+               }  // end if
+            }  // end for loop
+         }  // end run(.)
+      }, executor, parallelism);
+
+      return distances;
+   }  // end lowerTriangle(..)
+
+
+   // The row i of a pair number: the largest i with i*(i-1)/2 <= pair.
+   private static int rowOfPair(long pair)
+   {
+      int i = (int)((1.0 + Math.sqrt(1.0 + 8.0*pair)) / 2.0);
+      while ((long)i*(i-1)/2 > pair)
+         i--;
+      while ((long)(i+1)*i/2 <= pair)
+         i++;
+      return i;
+   }  // end rowOfPair(.)
+
+}  // end class PairwiseDistances
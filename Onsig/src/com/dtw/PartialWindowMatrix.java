@@ -28,9 +28,15 @@ class PartialWindowMatrix implements CostMatrix
    {
       window = searchWindow;
 
+      // The two columns are swapped when the next column is started, so both are allocated with the height of the
+      //    tallest column of the window.
+      int maxHeight = 0;
+      for (int i=window.minI(); i<=window.maxI(); i++)
+         maxHeight = Math.max(maxHeight, window.maxJforI(i)-window.minJforI(i)+1);
+
       if (window.maxI() > 0)
       {
-         currCol = new double[window.maxJforI(1)-window.minJforI(1)+1];
+         currCol = new double[maxHeight];
          currColIndex = 1;
          minLastRow = window.minJforI(currColIndex-1);
       }
@@ -38,7 +44,7 @@ class PartialWindowMatrix implements CostMatrix
          currColIndex = 0;
 
       minCurrRow = window.minJforI(currColIndex);
-      lastCol = new double[window.maxJforI(0)-window.minJforI(0)+1];
+      lastCol = new double[maxHeight];
    }  // end Constructor
 
 
@@ -59,10 +65,11 @@ class PartialWindowMatrix implements CostMatrix
             lastCol[row-minLastRow] = value;
          else if (col == currColIndex+1)
          {
+            final double[] temp = lastCol;
             lastCol = currCol;
+            currCol = temp;
             minLastRow = minCurrRow;
             currColIndex++;
-            currCol = new double[window.maxJforI(col)-window.minJforI(col)+1];
             minCurrRow = window.minJforI(col);
 
             currCol[row-minCurrRow] = value;
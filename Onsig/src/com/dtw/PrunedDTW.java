@@ -0,0 +1,236 @@
+/*
+ * PrunedDTW.java
+ *
+ * Teljes DTW távolság felső korláttal történő oszlopvágással (PrunedDTW).
+ */
+
+package com.dtw;
+
+import com.timeseries.TimeSeries;
+
+
+/**
+ * Pontos DTW távolság, amely nem számolja ki a költségmátrix azon celláit, amelyeken keresztül
+ * biztosan nem vezet optimális útvonal. A számítás előtt egy felső korlátot határoz meg: a két
+ * idősor végpontjait összekötő átlós (lineáris) illesztés költségét, ugyanabban a sorrendben
+ * összegezve, ahogy a dinamikus programozás is összegezné, így a DTW távolság lebegőpontosan sem
+ * lehet nagyobb nála. Egy oszlop elején és végén a korlátnál drágább cellák kimaradnak: az oszlop
+ * az előző oszlop első, korlát alatti cellájánál kezdődik, és az előző oszlop utolsó, korlát alatti
+ * cellája fölött csak addig folytatódik, amíg a költség a korlát alatt marad.
+ * <p>
+ * A kihagyott cellák költsége biztosan nagyobb a végső távolságnál, ezért az eredmény bitre
+ * megegyezik a DTW.getWarpDistBetween(..), illetve az ImprovedDTW.getWarpDistBetween(..)
+ * eredményével.
+ */
+public class PrunedDTW
+{
+
+   // FUNCTIONS
+   /**
+    * Két idősor euklideszi DTW távolsága, ugyanaz, mint a DTW.getWarpDistBetween(TimeSeries, TimeSeries).
+    * @param tsI első idősor
+    * @param tsJ második idősor
+    * @return távolság
+    */
+   public static double getWarpDistBetween(TimeSeries tsI, TimeSeries tsJ)
+   {
+      return getWarpDistBetween(tsI, tsJ, Double.POSITIVE_INFINITY);
+   }
+
+
+   /**
+    * Két idősor euklideszi DTW távolsága egy felső korláttal. Ha a távolság nagyobb a korlátnál,
+    * +végtelen a visszatérési érték, egyébként ugyanaz, mint a korlát nélküli változaté. A
+    * vágáshoz a két korlát közül a kisebbiket használja.
+    * @param tsI első idősor
+    * @param tsJ második idősor
+    * @param cutoff felső korlát
+    * @return távolság, vagy +végtelen, ha nagyobb a korlátnál
+    */
+   public static double getWarpDistBetween(TimeSeries tsI, TimeSeries tsJ, double cutoff)
+   {
+      return getWarpDistBetween(tsI, tsJ, null, null, cutoff);
+   }
+
+
+   /**
+    * Két idősor súlyozott DTW távolsága, ugyanaz, mint az
+    * ImprovedDTW.getWarpDistBetween(TimeSeries, TimeSeries, double[], double[]).
+    * @param tsI első idősor
+    * @param tsJ második idősor
+    * @param coordWeights koordináták súlyai
+    * @param pointWeights pontok súlyai
+    * @return távolság
+    */
+   public static double getWarpDistBetween(TimeSeries tsI, TimeSeries tsJ, double[] coordWeights,
+                                           double[] pointWeights)
+   {
+      return getWarpDistBetween(tsI, tsJ, coordWeights, pointWeights, Double.POSITIVE_INFINITY);
+   }
+
+
+   /**
+    * Két idősor súlyozott DTW távolsága egy felső korláttal, ugyanaz, mint az
+    * ImprovedDTW.getWarpDistBetween(TimeSeries, TimeSeries, double[], double[], double). Ha a
+    * koordináták súlyai null értékűek, a helyi költség a DTW osztály euklideszi távolsága, ha a
+    * pontok súlyai null értékűek, a helyi költségeket nem súlyozza.
+    * @param tsI első idősor
+    * @param tsJ második idősor
+    * @param coordWeights koordináták súlyai (vagy null)
+    * @param pointWeights pontok súlyai (vagy null)
+    * @param cutoff felső korlát
+    * @return távolság, vagy +végtelen, ha nagyobb a korlátnál
+    */
+   public static double getWarpDistBetween(TimeSeries tsI, TimeSeries tsJ, double[] coordWeights,
+                                           double[] pointWeights, double cutoff)
+   {
+      if (tsI.numOfDimensions() != tsJ.numOfDimensions())
+         throw new InternalError("ERROR:  cannot calculate the distance "
+                                 + "between vectors of different sizes.");
+
+      // The columns are along the shorter time series, the same way as in DTW and ImprovedDTW (the point weights
+      //    are indexed the same way as there).
+      if (tsI.size() < tsJ.size())
+         return prunedWarpDist(tsJ.toPackedArray(), tsJ.size(), tsI.toPackedArray(), tsI.size(),
+                               tsI.numOfDimensions(), coordWeights, pointWeights, cutoff);
+      else
+         return prunedWarpDist(tsI.toPackedArray(), tsI.size(), tsJ.toPackedArray(), tsJ.size(),
+                               tsI.numOfDimensions(), coordWeights, pointWeights, cutoff);
+   }  // end getWarpDistBetween(..)
+
+
+   // The cost of the diagonal warp path: column i is matched to row i*maxJ/maxI (sizeI >= sizeJ, so the path steps
+   //    one column at a time and at most one row up).  The costs are added in the order of the path, the same way
+   //    as the dynamic programming adds the cost of a cell to the cost of its predecessor, so the warp distance is
+   //    never larger than the result, not even because of rounding.
+   private static double diagonalPathCost(double[] tsI, int sizeI, double[] tsJ, int sizeJ, int dims,
+                                          double[] coordWeights, double[] pointWeights)
+   {
+      final int maxI = sizeI-1;
+      final int maxJ = sizeJ-1;
+
+      double cost = weightedCost(pointWeights, 0, localCost(tsI, 0, tsJ, 0, dims, coordWeights));
+      for (int i=1; i<=maxI; i++)
+      {
+         final int j = (int)(((long)i*maxJ) / maxI);
+         cost = cost + weightedCost(pointWeights, i, localCost(tsI, i*dims, tsJ, j*dims, dims, coordWeights));
+      }  // end for loop
+
+      return cost;
+   }  // end diagonalPathCost(..)
+
+
+   // sizeI >= sizeJ.  The cells of the previous column that are not more expensive than the bound are in the range
+   //    lastStart..lastEnd (the pruned cells inside the range hold +infinity), the cells outside the range are not
+   //    read.  A cell is pruned only if its cost is strictly greater than the bound, so the minimum of the three
+   //    predecessors of a cell that is not pruned is the same as in the full calculation.
+   private static double prunedWarpDist(double[] tsI, int sizeI, double[] tsJ, int sizeJ, int dims,
+                                        double[] coordWeights, double[] pointWeights, double cutoff)
+   {
+      final double bound = Math.min(cutoff, diagonalPathCost(tsI, sizeI, tsJ, sizeJ, dims, coordWeights,
+                                                             pointWeights));
+      final int maxI = sizeI-1;
+      final int maxJ = sizeJ-1;
+
+      double[] lastCol = new double[sizeJ];
+      double[] currCol = new double[sizeJ];
+
+      // Calculate the values for the first column, from the bottom up.  The first column is increasing, so it ends
+      //    at the first cell that is more expensive than the bound.
+      currCol[0] = weightedCost(pointWeights, 0, localCost(tsI, 0, tsJ, 0, dims, coordWeights));  // first cell
+      if (currCol[0] > bound)
+         return Double.POSITIVE_INFINITY;
+
+      int lastStart = 0;
+      int lastEnd = 0;
+      for (int j=1; j<=maxJ; j++)  // the rest of the first column
+      {
+         currCol[j] = currCol[j-1] + weightedCost(pointWeights, j, localCost(tsI, 0, tsJ, j*dims, dims,
+                                                                              coordWeights));
+         if (currCol[j] > bound)
+            break;
+         lastEnd = j;
+      }  // end for loop
+
+      for (int i=1; i<=maxI; i++)   // i = columns
+      {
+         // Swap the references between the two arrays.
+         final double[] temp = lastCol;
+         lastCol = currCol;
+         currCol = temp;
+
+         final int offsetI = i*dims;
+         int currStart = -1;
+         int currEnd = -1;
+
+         // The cells below 'lastStart' cannot be reached from a cell that is not pruned.
+         for (int j=lastStart; j<=maxJ; j++)  // j = rows
+         {
+            final double left = (j<=lastEnd) ? lastCol[j] : Double.POSITIVE_INFINITY;
+            final double cost;
+            if (j == 0)
+            {
+               // (i,0) = LocalCost(i,0) + GlobalCost(i-1,0)
+               cost = left + weightedCost(pointWeights, i, localCost(tsI, offsetI, tsJ, 0, dims, coordWeights));
+            }
+            else
+            {
+               // (i,j) = LocalCost(i,j) + minGlobalCost{(i-1,j),(i-1,j-1),(i,j-1)}
+               final double diag = (j-1>=lastStart && j-1<=lastEnd) ? lastCol[j-1] : Double.POSITIVE_INFINITY;
+               final double down = (j>lastStart) ? currCol[j-1] : Double.POSITIVE_INFINITY;
+               cost = Math.min(left, Math.min(diag, down)) +
+                      weightedCost(pointWeights, i, localCost(tsI, offsetI, tsJ, j*dims, dims, coordWeights));
+            }  // end if
+
+            if (cost > bound)
+            {
+               currCol[j] = Double.POSITIVE_INFINITY;
+
+               // Above the range of the previous column a cell can only be reached from the cell below it.
+               if (j > lastEnd)
+                  break;
+            }
+            else
+            {
+               currCol[j] = cost;
+               if (currStart < 0)
+                  currStart = j;
+               currEnd = j;
+            }  // end if
+         }  // end for loop
+
+         // Every warp path crosses this column.
+         if (currStart < 0)
+            return Double.POSITIVE_INFINITY;
+
+         lastStart = currStart;
+         lastEnd = currEnd;
+      }  // end for loop
+
+      // Minimum Cost is at (maxI,maxJ)
+      return (lastEnd == maxJ) ? currCol[maxJ] : Double.POSITIVE_INFINITY;
+   }  // end prunedWarpDist(..)
+
+
+   private static double weightedCost(double[] pointWeights, int index, double localCost)
+   {
+      return (pointWeights == null) ? localCost : pointWeights[index]*localCost;
+   }
+
+
+   // The weighted euclidean distance of ImprovedDTW, or the euclidean distance of DTW (the same operations in the
+   //    same order) if there are no coordinate weights.  Also used by StreamingDTW.
+   static double localCost(double[] points1, int offset1, double[] points2, int offset2, int dims,
+                                   double[] coordWeights)
+   {
+      if (coordWeights != null)
+         return ImprovedDTW.weightedEuclideanDist(points1, offset1, points2, offset2, dims, coordWeights);
+
+      double sqSum = 0.0;
+      for (int x=0; x<dims; x++)
+          sqSum += Math.pow(points1[offset1+x]-points2[offset2+x], 2.0);
+
+      return Math.sqrt(sqSum);
+   }  // end localCost(..)
+
+}  // end class PrunedDTW
@@ -0,0 +1,75 @@
+/*
+ * PrunedDTWEngine.java
+ *
+ * A PrunedDTW algoritmus távolságmotorként.
+ */
+
+package com.dtw;
+
+import com.timeseries.TimeSeries;
+
+
+/**
+ * Pontos (teljes) DTW távolság felső korláttal történő oszlopvágással, lásd PrunedDTW. Koordináta
+ * súlyok nélkül az eredmény ugyanaz, mint a DTWEngine eredménye, súlyokkal ugyanaz, mint az
+ * ImprovedDTWEngine eredménye. Az illesztési útvonalat vágás nélkül, a teljes mátrixszal számolja.
+ */
+public class PrunedDTWEngine implements DistanceEngine
+{
+   // PRIVATE DATA
+   private final double[] coordWeights;   // null: euclidean distance
+
+
+   // CONSTRUCTORS
+   /**
+    * Euklideszi távolsággal.
+    */
+   public PrunedDTWEngine()
+   {
+      this(null);
+   }
+
+
+   /**
+    * @param coordWeights koordináták súlyai (null esetén euklideszi távolság)
+    */
+   public PrunedDTWEngine(double[] coordWeights)
+   {
+      this.coordWeights = (coordWeights == null) ? null : coordWeights.clone();
+   }
+
+
+   // FUNCTIONS
+   public double getWarpDistBetween(TimeSeries tsI, TimeSeries tsJ)
+   {
+      return PrunedDTW.getWarpDistBetween(tsI, tsJ, coordWeights, null, Double.POSITIVE_INFINITY);
+   }
+
+
+   public double getWarpDistBetween(TimeSeries tsI, TimeSeries tsJ, double cutoff)
+   {
+      return PrunedDTW.getWarpDistBetween(tsI, tsJ, coordWeights, null, cutoff);
+   }
+
+
+   public double getWarpDistBetween(TimeSeries tsI, TimeSeries tsJ, double[] pointWeights, double cutoff)
+   {
+      return PrunedDTW.getWarpDistBetween(tsI, tsJ, coordWeights, pointWeights, cutoff);
+   }
+
+
+   public TimeWarpInfo getWarpInfoBetween(TimeSeries tsI, TimeSeries tsJ)
+   {
+      if (coordWeights == null)
+         return DTW.getWarpInfoBetween(tsI, tsJ);
+      else
+         return ImprovedDTW.getWarpInfoBetween(tsI, tsJ, coordWeights);
+   }
+
+
+   public double[] getCoordWeights()
+   {
+      return (coordWeights == null) ? null : coordWeights.clone();
+   }
+
+}  // end class PrunedDTWEngine
@@ -11,7 +11,6 @@ import com.matrix.ColMajorCell;
 
 import java.util.Iterator;
 import java.util.Arrays;
-import java.util.ArrayList;
 import java.util.ConcurrentModificationException;
 import java.util.NoSuchElementException;
 
@@ -20,12 +19,19 @@ import java.util.NoSuchElementException;
 abstract public class SearchWindow
 {
    // PRIVATE DATA
-   private final int[] minValues;
-   private final int[] maxValues;
-   private final int maxJ;
+   private int[] minValues;
+   private int[] maxValues;
+   private int numOfColumns;   // the arrays may be longer if the window has been reset to a smaller size
+   private int maxJ;
    private int size;
    private int modCount;
 
+   // Work arrays of expandSearchWindow(.), kept to be reused when the window is reset.
+   private int[] originalMin;
+   private int[] originalMax;
+   private int[] topRuns;
+   private int[] bottomRuns;
+
 
 
    // CONSTRUCTOR
@@ -34,6 +40,7 @@ abstract public class SearchWindow
       minValues = new int[tsIsize];
       maxValues = new int[tsIsize];
       Arrays.fill(minValues, -1);
+      numOfColumns = tsIsize;
       maxJ = tsJsize-1;
       size = 0;
       modCount = 0;
@@ -56,7 +63,7 @@ abstract public class SearchWindow
 
    public final int maxI()
    {
-      return minValues.length-1;
+      return numOfColumns-1;
    }
 
 
@@ -92,7 +99,10 @@ abstract public class SearchWindow
 
    // Iterates through all cells in the search window in the order that Dynamic
    //    Time Warping needs to evaluate them. (first to last column (0..maxI),
-   //    bottom up  (o..maxJ))
+   //    bottom up  (o..maxJ))  A ColMajorCell is created for every cell, the DTW
+   //    algorithms traverse the window with nested loops instead:
+   //       for (int i=window.minI(); i<=window.maxI(); i++)
+   //          for (int j=window.minJforI(i); j<=window.maxJforI(i); j++)
    public final Iterator iterator()
    {
       return new SearchWindowIterator(this);
@@ -122,6 +132,24 @@ abstract public class SearchWindow
 
 
    // PROTECTED FUNCTIONS
+   //    Empties the window and resizes it for time series of the specified lengths.  The arrays are only reallocated
+   //    if they are too short, so a window can be reused for many calculations without creating garbage.
+   protected final void reset(int tsIsize, int tsJsize)
+   {
+      if (minValues.length < tsIsize)
+      {
+         minValues = new int[tsIsize];
+         maxValues = new int[tsIsize];
+      }  // end if
+
+      Arrays.fill(minValues, 0, tsIsize, -1);
+      numOfColumns = tsIsize;
+      maxJ = tsJsize-1;
+      size = 0;
+      modCount++;  // stucture has been changed
+   }  // end reset(..)
+
+
    //    Expands the current window by a s pecified radius.
    protected final void expandWindow(int radius)
    {
@@ -135,151 +163,111 @@ abstract public class SearchWindow
    }
 
 
+   // Every cell of the window is moved by 'radius' in the 8 directions, a move that would leave the matrix is cut
+   //    short at its edge (keeping its direction), and the cells reached are added to the window.  The cells of a
+   //    column are a range, so the cells a column reaches in a direction are either a range of rows in one column, or
+   //    (the moves cut short by the top or bottom edge) a run of columns on the top or bottom row.  The ranges are
+   //    marked directly and the runs are counted in difference arrays, so the expansion takes time linear in the
+   //    number of columns.  The cells are moved from the original window, which is copied first.
    private final void expandSearchWindow(int radius)
    {
       if (radius > 0)  // if radius <=0 then no search is necessary, use the current search window
       {
-         // Add all cells in the current Window to an array, iterating through the window and expanding the window
-         //    at the same time is not possible because the window can't be changed during iteration through the cells.
-         final ArrayList windowCells = new ArrayList(this.size());
-         for (final Iterator cellIter=this.iterator(); cellIter.hasNext();)
-            windowCells.add(cellIter.next());
-
-
-         for (int cell=0; cell<windowCells.size(); cell++)
+         if ( (originalMin==null) || (originalMin.length<numOfColumns) )
          {
-            final ColMajorCell currentCell = (ColMajorCell)windowCells.get(cell);
-
-            if ( (currentCell.getCol() != minI()) && (currentCell.getRow() != maxJ()) )// move to upper left if possible
-            {
-               // Either extend full search radius or some fraction until edges of matrix are met.
-               final int targetCol = currentCell.getCol()-radius;
-               final int targetRow = currentCell.getRow()+radius;
+            originalMin = new int[numOfColumns];
+            originalMax = new int[numOfColumns];
+            topRuns = new int[numOfColumns+1];
+            bottomRuns = new int[numOfColumns+1];
+         }  // end if
 
-               if ( (targetCol>=minI()) && (targetRow<=maxJ()))
-                  markVisited(targetCol, targetRow);
-               else
-               {
-                  // Expand the window only to the edge of the matrix.
-                  final int cellsPastEdge = Math.max(minI()-targetCol, targetRow-maxJ());
-                  markVisited(targetCol+cellsPastEdge, targetRow-cellsPastEdge);
-               }  // end if
-            }  // end if
+         System.arraycopy(minValues, 0, originalMin, 0, numOfColumns);
+         System.arraycopy(maxValues, 0, originalMax, 0, numOfColumns);
+         Arrays.fill(topRuns, 0, numOfColumns+1, 0);
+         Arrays.fill(bottomRuns, 0, numOfColumns+1, 0);
 
-            if (currentCell.getRow() != maxJ())  // move up if possible
-            {
-               // Either extend full search radius or some fraction until edges of matrix are met.
-               final int targetCol = currentCell.getCol();
-               final int targetRow = currentCell.getRow()+radius;
+         for (int col=0; col<numOfColumns; col++)
+         {
+            final int lo = originalMin[col];
+            final int hi = originalMax[col];
+            if (lo == -1)
+               continue;   // empty column
+
+            // Move up and down (in the same column).
+            markRange(col, Math.min(lo+radius, maxJ), Math.min(hi+radius, maxJ));
+            markRange(col, Math.max(lo-radius, minJ()), Math.max(hi-radius, minJ()));
+
+            // Move left and right (the same rows).
+            markRange(Math.max(col-radius, minI()), lo, hi);
+            markRange(Math.min(col+radius, maxI()), lo, hi);
+
+            // Move diagonally, the left moves are cut short by the left edge, the right moves by the right edge.
+            final int leftRadius = Math.min(radius, col-minI());
+            final int rightRadius = Math.min(radius, maxI()-col);
+            moveUp(col, lo, hi, -1, leftRadius);
+            moveUp(col, lo, hi, 1, rightRadius);
+            moveDown(col, lo, hi, -1, leftRadius);
+            moveDown(col, lo, hi, 1, rightRadius);
+         }  // end for loop
 
-               if (targetRow <= maxJ())
-                  markVisited(targetCol, targetRow);  // radius does not go past the edges of the matrix
-               else
-               {
-                  // Expand the window only to the edge of the matrix.
-                  final int cellsPastEdge = targetRow-maxJ();
-                  markVisited(targetCol, targetRow-cellsPastEdge);
-               }  // end if
-            }  // end if
+         // Mark the runs of columns reached on the top and bottom rows.
+         int topCount = 0;
+         int bottomCount = 0;
+         for (int col=0; col<numOfColumns; col++)
+         {
+            topCount += topRuns[col];
+            bottomCount += bottomRuns[col];
+            if (topCount > 0)
+               markRange(col, maxJ, maxJ);
+            if (bottomCount > 0)
+               markRange(col, minJ(), minJ());
+         }  // end for loop
+      }  // end if
+   }  // end expandWindow(.)
 
-            if ((currentCell.getCol() != maxI()) && (currentCell.getRow() != maxJ())) // move to upper-right if possible
-            {
-               // Either extend full search radius or some fraction until edges of matrix are met.
-               final int targetCol = currentCell.getCol()+radius;
-               final int targetRow = currentCell.getRow()+radius;
 
-               if ( (targetCol<=maxI()) && (targetRow<=maxJ()))
-                  markVisited(targetCol, targetRow);  // radius does not go past the edges of the matrix
-               else
-               {
-                  // Expand the window only to the edge of the matrix.
-                  final int cellsPastEdge = Math.max(targetCol-maxI(), targetRow-maxJ());
-                  markVisited(targetCol-cellsPastEdge, targetRow-cellsPastEdge);
-               }  // end if
-            }  // end if
+   // Moves the cells lo..hi of a column diagonally up by 'steps' columns to the left (dir=-1) or right (dir=1).  A
+   //    move that would go past the top row stops on the top row.
+   private void moveUp(int col, int lo, int hi, int dir, int steps)
+   {
+      final int lastFullRow = maxJ-steps;   // the highest row that can move by all of the steps
 
-            if (currentCell.getCol() != minI())  // move left if possible
-            {
-               // Either extend full search radius or some fraction until edges of matrix are met.
-               final int targetCol = currentCell.getCol()-radius;
-               final int targetRow = currentCell.getRow();
+      if (lo <= lastFullRow)
+         markRange(col+dir*steps, lo+steps, Math.min(hi, lastFullRow)+steps);
 
-               if (targetCol >= minI())
-                  markVisited(targetCol, targetRow);  // radius does not go past the edges of the matrix
-               else
-               {
-                  // Expand the window only to the edge of the matrix.
-                  final int cellsPastEdge = minI()-targetCol;
-                  markVisited(targetCol+cellsPastEdge, targetRow);
-               }  // end if
-            }  // end if
+      if (hi > lastFullRow)   // the row 'row' reaches the top row in column col+dir*(maxJ-row)
+         addRun(topRuns, col+dir*(maxJ-hi), col+dir*(maxJ-Math.max(lo, lastFullRow+1)));
+   }  // end moveUp(..)
 
-            if (currentCell.getCol() != maxI())  // move right if possible
-            {
-               // Either extend full search radius or some fraction until edges of matrix are met.
-               final int targetCol = currentCell.getCol()+radius;
-               final int targetRow = currentCell.getRow();
 
-               if (targetCol <= maxI())
-                  markVisited(targetCol, targetRow);  // radius does not go past the edges of the matrix
-               else
-               {
-                  // Expand the window only to the edge of the matrix.
-                  final int cellsPastEdge = targetCol-maxI();
-                  markVisited(targetCol-cellsPastEdge, targetRow);
-               }  // end if
-            }  // end if
+   // Moves the cells lo..hi of a column diagonally down by 'steps' columns to the left (dir=-1) or right (dir=1).  A
+   //    move that would go past the bottom row stops on the bottom row.
+   private void moveDown(int col, int lo, int hi, int dir, int steps)
+   {
+      final int firstFullRow = minJ()+steps;   // the lowest row that can move by all of the steps
 
-            if ( (currentCell.getCol() != minI()) && (currentCell.getRow() != minJ()) )  // move to lower-left if possible
-            {
-               // Either extend full search radius or some fraction until edges of matrix are met.
-               final int targetCol = currentCell.getCol()-radius;
-               final int targetRow = currentCell.getRow()-radius;
+      if (hi >= firstFullRow)
+         markRange(col+dir*steps, Math.max(lo, firstFullRow)-steps, hi-steps);
 
-               if ( (targetCol>=minI()) && (targetRow>=minJ()))
-                  markVisited(targetCol, targetRow);  // radius does not go past the edges of the matrix
-               else
-               {
-                  // Expand the window only to the edge of the matrix.
-                  final int cellsPastEdge = Math.max(minI()-targetCol, minJ()-targetRow);
-                  markVisited(targetCol+cellsPastEdge, targetRow+cellsPastEdge);
-               }  // end if
-            }  // end if
+      if (lo < firstFullRow)   // the row 'row' reaches the bottom row in column col+dir*(row-minJ)
+         addRun(bottomRuns, col+dir*(lo-minJ()), col+dir*(Math.min(hi, firstFullRow-1)-minJ()));
+   }  // end moveDown(..)
 
-            if (currentCell.getRow() != minJ())  // move down if possible
-            {
-               // Either extend full search radius or some fraction until edges of matrix are met.
-               final int targetCol = currentCell.getCol();
-               final int targetRow = currentCell.getRow()-radius;
 
-               if (targetRow >= minJ())
-                  markVisited(targetCol, targetRow);  // radius does not go past the edges of the matrix
-               else
-               {
-                  // Expand the window only to the edge of the matrix.
-                  final int cellsPastEdge = minJ()-targetRow;
-                  markVisited(targetCol, targetRow+cellsPastEdge);
-               }  // end if
-            }  // end if
+   // Adds the columns between col1 and col2 (in any order) to a difference array.
+   private static void addRun(int[] runs, int col1, int col2)
+   {
+      runs[Math.min(col1, col2)]++;
+      runs[Math.max(col1, col2)+1]--;
+   }
 
-            if ((currentCell.getCol() != maxI()) && (currentCell.getRow() != minJ()))  // move to lower-right if possible
-            {
-               // Either extend full search radius or some fraction until edges of matrix are met.
-               final int targetCol = currentCell.getCol()+radius;
-               final int targetRow = currentCell.getRow()-radius;
 
-               if ( (targetCol<=maxI()) && (targetRow>=minJ()))
-                  markVisited(targetCol, targetRow);  // radius does not go past the edges of the matrix
-               else
-               {
-                  // Expand the window only to the edge of the matrix.
-                  final int cellsPastEdge = Math.max(targetCol-maxI(), minJ()-targetRow);
-                  markVisited(targetCol-cellsPastEdge, targetRow+cellsPastEdge);
-               }  // end if
-            }  // end if
-         }  // end for loop
-      }  // end if
-   }  // end expandWindow(.)
+   // Expands the range of a column so that it contains the rows low..high.
+   private void markRange(int col, int low, int high)
+   {
+      markVisited(col, low);
+      markVisited(col, high);
+   }
 
 
    // Raturns true if the window is modified.
@@ -0,0 +1,194 @@
+/*
+ * StreamingDTW.java
+ *
+ * Folyamatosan érkező pontok DTW távolsága egy rögzített sablontól.
+ */
+
+package com.dtw;
+
+import com.timeseries.TimeSeries;
+
+
+/**
+ * Egy folyamatosan érkező pontsorozat (pl. a tábláról élőben olvasott minták) DTW távolsága egy
+ * rögzített sablontól (pl. egy sablon szakasztól). Minden új pont a költségmátrix egy új oszlopát
+ * számolja ki a sablon teljes hossza mentén, csak az utolsó oszlopot tárolja, így egy pont
+ * feldolgozása O(sablon hossza) idejű, és nem foglal memóriát. Bármikor lekérdezhető a beérkezett
+ * pontok távolsága a teljes sablontól (a toll felemelésekor ez azonnal a végeredmény), valamint a
+ * legjobb részleges távolság: a beérkezett pontok távolsága a sablon legjobban illeszkedő elejétől.
+ * <p>
+ * A távolság bitre ugyanaz, mint a DTW.getWarpDistBetween(..) eredménye (koordináta súlyokkal az
+ * ImprovedDTW.getWarpDistBetween(..) eredménye egyforma pontsúlyokkal) a beérkezett pontok
+ * idősora és a sablon között. A sablon pontjait a konstruktorban lemásolja. Egy példányt egyszerre
+ * csak egy szál használhat.
+ */
+public class StreamingDTW
+{
+   // PRIVATE DATA
+   private final double[] template;       // packed points of the template
+   private final int templateSize;
+   private final int dims;
+   private final double[] coordWeights;   // null: euclidean distance
+
+   private double[] lastCol;
+   private double[] currCol;              // the column of the last sample (valid if numOfSamples > 0)
+   private int numOfSamples;
+   private int bestPartialIndex;          // index of the minimum of the last column
+
+
+   // CONSTRUCTORS
+   /**
+    * Euklideszi távolsággal.
+    * @param template sablon
+    */
+   public StreamingDTW(TimeSeries template)
+   {
+      this(template, null);
+   }
+
+
+   /**
+    * @param template sablon
+    * @param coordWeights koordináták súlyai (null esetén euklideszi távolság)
+    */
+   public StreamingDTW(TimeSeries template, double[] coordWeights)
+   {
+      if (template.size() == 0)
+         throw new InternalError("ERROR:  cannot warp to an empty template.");
+
+      this.template = template.toPackedArray();
+      this.templateSize = template.size();
+      this.dims = template.numOfDimensions();
+      this.coordWeights = (coordWeights == null) ? null : coordWeights.clone();
+      this.lastCol = new double[templateSize];
+      this.currCol = new double[templateSize];
+   }  // end Constructor
+
+
+   // FUNCTIONS
+   /**
+    * Feldolgoz egy új pontot: kiszámolja a költségmátrix következő oszlopát.
+    * @param sample a pont koordinátái (a sablon dimenziójával)
+    */
+   public void addSample(double[] sample)
+   {
+      if (sample.length != dims)
+         throw new InternalError("ERROR:  cannot calculate the distance "
+                                 + "between vectors of different sizes.");
+
+      // Swap the references between the two arrays.
+      final double[] temp = lastCol;
+      lastCol = currCol;
+      currCol = temp;
+
+      final int maxJ = templateSize-1;
+      if (numOfSamples == 0)
+      {
+         // Calculate the values for the first column, from the bottom up.
+         currCol[0] = PrunedDTW.localCost(sample, 0, template, 0, dims, coordWeights);  // first cell
+         for (int j=1; j<=maxJ; j++)  // the rest of the first column
+            currCol[j] = currCol[j-1] + PrunedDTW.localCost(sample, 0, template, j*dims, dims, coordWeights);
+      }
+      else
+      {
+         // Calculate the value for the bottom row of the current column
+         //    (i,0) = LocalCost(i,0) + GlobalCost(i-1,0)
+         currCol[0] = lastCol[0] + PrunedDTW.localCost(sample, 0, template, 0, dims, coordWeights);
+
+         for (int j=1; j<=maxJ; j++)  // j = rows
+         {
+            // (i,j) = LocalCost(i,j) + minGlobalCost{(i-1,j),(i-1,j-1),(i,j-1)}
+            final double minGlobalCost = Math.min(lastCol[j], Math.min(lastCol[j-1], currCol[j-1]));
+            currCol[j] = minGlobalCost + PrunedDTW.localCost(sample, 0, template, j*dims, dims, coordWeights);
+         }  // end for loop
+      }  // end if
+
+      bestPartialIndex = 0;
+      for (int j=1; j<=maxJ; j++)
+         if (currCol[j] < currCol[bestPartialIndex])
+            bestPartialIndex = j;
+
+      numOfSamples++;
+   }  // end addSample(.)
+
+
+   /**
+    * Egymás után feldolgozza egy idősor összes pontját.
+    * @param samples pontok
+    */
+   public void addSamples(TimeSeries samples)
+   {
+      for (int i=0; i<samples.size(); i++)
+         addSample(samples.getMeasurementVector(i));
+   }
+
+
+   /**
+    * Az eddig feldolgozott pontok száma.
+    * @return pontok száma
+    */
+   public int numOfSamples()
+   {
+      return numOfSamples;
+   }
+
+
+   public int getTemplateSize()
+   {
+      return templateSize;
+   }
+
+
+   /**
+    * Az eddig beérkezett pontok távolsága a teljes sablontól.
+    * @return távolság, vagy +végtelen, ha még nem érkezett pont
+    */
+   public double getDistance()
+   {
+      return (numOfSamples == 0) ? Double.POSITIVE_INFINITY : currCol[templateSize-1];
+   }
+
+
+   /**
+    * Az eddig beérkezett pontok távolsága a sablon legjobban illeszkedő elejétől (az utolsó oszlop
+    * minimuma). Mivel minden útvonal átmegy minden oszlopon, a végső távolság (akárhány pont
+    * érkezik még) ennél nem lehet kisebb.
+    * @return távolság, vagy +végtelen, ha még nem érkezett pont
+    */
+   public double getBestPartialDistance()
+   {
+      return (numOfSamples == 0) ? Double.POSITIVE_INFINITY : currCol[bestPartialIndex];
+   }
+
+
+   /**
+    * A sablon legjobban illeszkedő elejének utolsó pontja (lásd getBestPartialDistance()).
+    * @return a sablon pontjának indexe, vagy -1, ha még nem érkezett pont
+    */
+   public int getBestPartialIndex()
+   {
+      return (numOfSamples == 0) ? -1 : bestPartialIndex;
+   }
+
+
+   /**
+    * Igaz, ha a végső távolság biztosan nagyobb lesz a korlátnál, akárhány pont érkezik még.
+    * @param cutoff korlát
+    * @return igaz, ha a legjobb részleges távolság is nagyobb a korlátnál (pont nélkül hamis)
+    */
+   public boolean exceeds(double cutoff)
+   {
+      return (numOfSamples > 0) && (currCol[bestPartialIndex] > cutoff);
+   }
+
+
+   /**
+    * Elfelejti az eddig beérkezett pontokat (a sablon ugyanaz marad).
+    */
+   public void reset()
+   {
+      numOfSamples = 0;
+      bestPartialIndex = 0;
+   }
+
+}  // end class StreamingDTW
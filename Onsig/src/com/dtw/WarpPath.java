@@ -22,25 +22,40 @@ import java.io.IOException;
 
 public class WarpPath
 {
+   // CONSTANTS
+   private final static int DEFAULT_CAPACITY = 16;
+
+
    // DATA
-   private final ArrayList tsIindexes;   // ArrayList of Integer
-   private final ArrayList tsJindexes;   // ArrayList of Integer
+   // The cells of the path are tsIindexes[start..end-1] and tsJindexes[start..end-1].  There is free room at both
+   //    ends of the arrays, so that a path can be built both forwards (addLast) and backwards (addFirst, as the
+   //    traceback of the DTW algorithms does) without shifting the cells already in the path.
+   private int[] tsIindexes;
+   private int[] tsJindexes;
+   private int start;
+   private int end;
+
+   // Offset indexes of the cells matching each index of I and J, built when they are first needed and dropped when the
+   //    path changes.
+   private volatile RunIndex iIndex;
+   private volatile RunIndex jIndex;
 
 
    // CONSTRUCTORS
    public WarpPath()
    {
-      tsIindexes = new ArrayList();
-      tsJindexes = new ArrayList();
+      this(DEFAULT_CAPACITY);
+      start = end = 0;   // room for addLast(..)
    }
 
 
+   // The DTW algorithms build the path backwards, from the last cell to the first one, so the room is reserved at
+   //    the front of the path.
    public WarpPath(int initialCapacity)
    {
-      this();
-      tsIindexes.ensureCapacity(initialCapacity);
-      tsJindexes.ensureCapacity(initialCapacity);
-
+      tsIindexes = new int[Math.max(initialCapacity, 1)];
+      tsJindexes = new int[Math.max(initialCapacity, 1)];
+      start = end = tsIindexes.length;
    }
 
 
@@ -60,8 +75,8 @@ public class WarpPath
             final StringTokenizer st = new StringTokenizer(line, ",", false);
             if (st.countTokens() == 2)
             {
-               tsIindexes.add(new Integer(st.nextToken()));
-               tsJindexes.add(new Integer(st.nextToken()));
+               final int i = Integer.parseInt(st.nextToken());
+               addLast(i, Integer.parseInt(st.nextToken()));
             }
             else
                throw new InternalError("The Warp Path File '" + inputFile + "' has an incorrect format.  There must be\n" +
@@ -83,56 +98,63 @@ public class WarpPath
    // FUNCTIONS
    public int size()
    {
-      return tsIindexes.size();
+      return end-start;
    }
 
 
    public int minI()
    {
-      return ((Integer)tsIindexes.get(0)).intValue();
+      return tsIindexes[checkedPosition(0)];
    }
 
 
    public int minJ()
    {
-      return ((Integer)tsJindexes.get(0)).intValue();
+      return tsJindexes[checkedPosition(0)];
    }
 
    public int maxI()
    {
-      return ((Integer)tsIindexes.get( tsIindexes.size()-1 )).intValue();
+      return tsIindexes[checkedPosition(size()-1)];
    }
 
 
    public int maxJ()
    {
-      return ((Integer)tsJindexes.get( tsJindexes.size()-1 )).intValue();
+      return tsJindexes[checkedPosition(size()-1)];
    }
 
 
    public void addFirst(int i, int j)
    {
-      tsIindexes.add(0, new Integer(i));
-      tsJindexes.add(0, new Integer(j));
+      if (start == 0)
+         reallocate(Math.max(size(), DEFAULT_CAPACITY), 0);
+
+      start--;
+      pathChanged();
+      tsIindexes[start] = i;
+      tsJindexes[start] = j;
    }
 
 
    public void addLast(int i, int j)
    {
-      tsIindexes.add(new Integer(i));
-      tsJindexes.add(new Integer(j));
+      if (end == tsIindexes.length)
+         reallocate(0, Math.max(size(), DEFAULT_CAPACITY));
+
+      tsIindexes[end] = i;
+      tsJindexes[end] = j;
+      end++;
+      pathChanged();
    }
 
 
    public ArrayList getMatchingIndexesForI(int i)
    {
-      int index = tsIindexes.indexOf(new Integer(i));
-      if (index < 0)
-         throw new InternalError("ERROR:  index '" + i + " is not in the " +
-                                 "warp path.");
+      int index = firstPosition(indexForI(), tsIindexes, i);
       final ArrayList matchingJs = new ArrayList();
-      while (index<tsIindexes.size() && tsIindexes.get(index).equals(new Integer(i)))
-         matchingJs.add(tsJindexes.get(index++));
+      while (index<end && tsIindexes[index]==i)
+         matchingJs.add(new Integer(tsJindexes[index++]));
 
       return matchingJs;
    }  // end getMatchingIndexesForI(int i)
@@ -140,24 +162,51 @@ public class WarpPath
 
    public ArrayList getMatchingIndexesForJ(int j)
    {
-      int index = tsJindexes.indexOf(new Integer(j));
-      if (index < 0)
-         throw new InternalError("ERROR:  index '" + j + " is not in the " +
-                                 "warp path.");
+      int index = firstPosition(indexForJ(), tsJindexes, j);
       final ArrayList matchingIs = new ArrayList();
-      while (index<tsJindexes.size() && tsJindexes.get(index).equals(new Integer(j)))
-         matchingIs.add(tsIindexes.get(index++));
+      while (index<end && tsJindexes[index]==j)
+         matchingIs.add(new Integer(tsIindexes[index++]));
 
       return matchingIs;
    }  // end getMatchingIndexesForI(int i)
 
 
+   // In a warp path (both indexes are non-decreasing along the path and increase by at most 1 in a step) the
+   //    indexes of J matching index i of I are a range, these functions return its first and last elements without
+   //    building a list.  The result is the same as the first and last elements of getMatchingIndexesForI(i).  The
+   //    first call builds an offset index of the path, after that a lookup takes constant time.
+   public int getFirstMatchingIndexForI(int i)
+   {
+      return tsJindexes[firstPosition(indexForI(), tsIindexes, i)];
+   }
+
+
+   public int getLastMatchingIndexForI(int i)
+   {
+      return tsJindexes[lastPosition(indexForI(), tsIindexes, i)];
+   }
+
+
+   public int getFirstMatchingIndexForJ(int j)
+   {
+      return tsIindexes[firstPosition(indexForJ(), tsJindexes, j)];
+   }
+
+
+   public int getLastMatchingIndexForJ(int j)
+   {
+      return tsIindexes[lastPosition(indexForJ(), tsJindexes, j)];
+   }
+
+
    // Create a new WarpPath that is the same as THIS WarpPath, but J is the reference template, rather than I.
    public WarpPath invertedCopy()
    {
-      final WarpPath newWarpPath = new WarpPath();
-      for (int x=0; x<tsIindexes.size(); x++)
-         newWarpPath.addLast(((Integer)tsJindexes.get(x)).intValue(), ((Integer)tsIindexes.get(x)).intValue());
+      final WarpPath newWarpPath = new WarpPath(size());
+      System.arraycopy(tsJindexes, start, newWarpPath.tsIindexes, 0, size());
+      System.arraycopy(tsIindexes, start, newWarpPath.tsJindexes, 0, size());
+      newWarpPath.start = 0;
+      newWarpPath.end = size();
 
       return newWarpPath;
    }
@@ -166,32 +215,52 @@ public class WarpPath
    // Swap I and J so that the warp path now indicates that J is the template rather than I.
    public void invert()
    {
-      for (int x=0; x<tsIindexes.size(); x++)
-      {
-         final Object temp = tsIindexes.get(x);
-         tsIindexes.set(x, tsJindexes.get(x));
-         tsJindexes.set(x, temp);
-      }
+      final int[] temp = tsIindexes;
+      tsIindexes = tsJindexes;
+      tsJindexes = temp;
+
+      final RunIndex tempIndex = iIndex;
+      iIndex = jIndex;
+      jIndex = tempIndex;
    }  // end invert()
 
 
    public ColMajorCell get(int index)
    {
-      if ( (index>this.size()) || (index<0) )
+      if ( (index>=this.size()) || (index<0) )
+         throw new NoSuchElementException();
+      else
+         return new ColMajorCell(tsIindexes[start+index], tsJindexes[start+index]);
+   }
+
+
+   // The I index of a cell of the path, without creating a ColMajorCell.
+   public int getI(int index)
+   {
+      if ( (index>=this.size()) || (index<0) )
+         throw new NoSuchElementException();
+      else
+         return tsIindexes[start+index];
+   }
+
+
+   // The J index of a cell of the path, without creating a ColMajorCell.
+   public int getJ(int index)
+   {
+      if ( (index>=this.size()) || (index<0) )
          throw new NoSuchElementException();
       else
-         return new ColMajorCell(((Integer)tsIindexes.get(index)).intValue(),
-                                 ((Integer)tsJindexes.get(index)).intValue());
+         return tsJindexes[start+index];
    }
 
 
    public String toString()
    {
       StringBuffer outStr = new StringBuffer("[");
-      for (int x=0; x<tsIindexes.size(); x++)
+      for (int x=start; x<end; x++)
       {
-         outStr.append("(" + tsIindexes.get(x) + "," + tsJindexes.get(x) + ")");
-         if (x < tsIindexes.size()-1)
+         outStr.append("(" + tsIindexes[x] + "," + tsJindexes[x] + ")");
+         if (x < end-1)
             outStr.append(",");
       }  // end for loop
 
@@ -208,7 +277,8 @@ public class WarpPath
          {
             // Compare each value in the warp path for equality
             for (int x=0; x<this.size(); x++)
-               if ( !(this.get(x).equals(p.get(x))) )
+               if ( (this.tsIindexes[this.start+x]!=p.tsIindexes[p.start+x]) ||
+                    (this.tsJindexes[this.start+x]!=p.tsJindexes[p.start+x]) )
                   return false;
 
             return true;
@@ -221,9 +291,161 @@ public class WarpPath
    }  // end equals
 
 
+   // The same value as the hash code of the lists of Integers that used to store the path.
    public int hashCode()
    {
-      return tsIindexes.hashCode() * tsJindexes.hashCode();
+      return listHashCode(tsIindexes) * listHashCode(tsJindexes);
+   }
+
+
+   private int listHashCode(int[] indexes)
+   {
+      int hashCode = 1;
+      for (int x=start; x<end; x++)
+         hashCode = 31*hashCode + indexes[x];
+
+      return hashCode;
+   }
+
+
+   private RunIndex indexForI()
+   {
+      RunIndex index = iIndex;
+      if (index == null)
+         iIndex = index = new RunIndex(tsIindexes, start, end);
+      return index;
+   }
+
+
+   private RunIndex indexForJ()
+   {
+      RunIndex index = jIndex;
+      if (index == null)
+         jIndex = index = new RunIndex(tsJindexes, start, end);
+      return index;
+   }
+
+
+   private void pathChanged()
+   {
+      iIndex = null;
+      jIndex = null;
+   }
+
+
+   // Position of the first cell of the path with indexes[position]==value.  If the indexes are not sorted (the path
+   //    was not made by DTW) the first occurrence is searched.
+   private int firstPosition(RunIndex index, int[] indexes, int value)
+   {
+      final int position;
+      if (index.offsets != null)
+         position = index.firstPosition(value);
+      else
+      {
+         int x = start;
+         while ( (x<end) && (indexes[x]!=value) )
+            x++;
+         position = (x<end) ? x : -1;
+      }  // end if
+
+      if (position < 0)
+         throw new InternalError("ERROR:  index '" + value + " is not in the " +
+                                 "warp path.");
+      return position;
+   }  // end firstPosition(..)
+
+
+   // Position of the last cell of the run of cells with indexes[position]==value that starts at firstPosition(..).
+   private int lastPosition(RunIndex index, int[] indexes, int value)
+   {
+      if (index.offsets != null)
+         return index.lastPosition(value);
+
+      int x = firstPosition(index, indexes, value);
+      while ( (x+1<end) && (indexes[x+1]==value) )
+         x++;
+      return x;
+   }  // end lastPosition(..)
+
+
+   private int checkedPosition(int index)
+   {
+      if ( (index>=this.size()) || (index<0) )
+         throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+      return start+index;
    }
 
+
+   // Moves the path into new arrays with (at least) the given free room before and after it.
+   private void reallocate(int roomBefore, int roomAfter)
+   {
+      final int size = size();
+      final int newStart = (start==0) ? roomBefore : start;
+      final int newLength = newStart + size + Math.max(roomAfter, tsIindexes.length-end);
+
+      final int[] newIindexes = new int[newLength];
+      final int[] newJindexes = new int[newLength];
+      System.arraycopy(tsIindexes, start, newIindexes, newStart, size);
+      System.arraycopy(tsJindexes, start, newJindexes, newStart, size);
+
+      tsIindexes = newIindexes;
+      tsJindexes = newJindexes;
+      start = newStart;
+      end = newStart+size;
+   }  // end reallocate(..)
+
+
+
+   // CSR style offset index of one of the index arrays of a path: the cells with index v are the positions
+   //    offsets[v]..offsets[v+1]-1.  It is only built if the indexes are non-negative and sorted, otherwise 'offsets'
+   //    is null.
+   private final static class RunIndex
+   {
+      final int[] offsets;
+
+      RunIndex(int[] indexes, int start, int end)
+      {
+         offsets = build(indexes, start, end);
+      }
+
+
+      private static int[] build(int[] indexes, int start, int end)
+      {
+         if ( (start==end) || (indexes[start]<0) )
+            return null;
+         for (int x=start+1; x<end; x++)
+            if (indexes[x] < indexes[x-1])
+               return null;
+
+         final int maxValue = indexes[end-1];
+         final int[] offsets = new int[maxValue+2];
+         int x = start;
+         for (int v=0; v<=maxValue+1; v++)
+         {
+            while ( (x<end) && (indexes[x]<v) )
+               x++;
+            offsets[v] = x;
+         }  // end for loop
+
+         return offsets;
+      }  // end build(..)
+
+
+      int firstPosition(int value)
+      {
+         if ( (value<0) || (value>=offsets.length-1) || (offsets[value]==offsets[value+1]) )
+            return -1;
+         return offsets[value];
+      }
+
+
+      int lastPosition(int value)
+      {
+         if ( (value<0) || (value>=offsets.length-1) || (offsets[value]==offsets[value+1]) )
+            throw new InternalError("ERROR:  index '" + value + " is not in the " +
+                                    "warp path.");
+         return offsets[value+1]-1;
+      }
+   }  // end class RunIndex
+
 }  // end class WarpPath
@@ -0,0 +1,100 @@
+/*
+ * WarpWorkspace.java
+ *
+ * Szálanként újrahasznosított keresési ablak és költségmátrix.
+ */
+
+package com.dtw;
+
+import com.timeseries.PAA;
+import com.timeseries.TimeSeries;
+
+
+// The search window and the memory resident cost matrix of the windowed DTW calculations of a thread.  The recursion
+//    of FastDTW/FastImprovedDTW uses only one window and one matrix at a time (the window of a resolution is created
+//    after the recursive call has returned), so a single window and matrix per thread is enough.  They are resized
+//    to the largest request seen, after that the calculations do not create garbage for them.  If the window or the
+//    matrix of the thread is already in use (e.g. a listener calls DTW), or the matrix would be larger than the
+//    "com.dtw.pooledCells" system property (number of cells), a new object is created and it is not kept.
+final class WarpWorkspace
+{
+   // CONSTANTS
+   private static final int MAX_POOLED_CELLS = Integer.getInteger("com.dtw.pooledCells", 1<<20).intValue();
+
+   private static final ThreadLocal<WarpWorkspace> WORKSPACES = new ThreadLocal<WarpWorkspace>()
+   {
+      protected WarpWorkspace initialValue()
+      {
+         return new WarpWorkspace();
+      }
+   };
+
+
+   // PRIVATE DATA
+   private ExpandedResWindow window;
+   private boolean windowInUse;
+   private MemoryResidentMatrix matrix;
+   private boolean matrixInUse;
+
+
+   // CONSTRUCTOR
+   private WarpWorkspace()
+   {
+   }
+
+
+
+   // FUNCTIONS
+   // The workspace of the current thread.
+   static WarpWorkspace current()
+   {
+      return WORKSPACES.get();
+   }
+
+
+   // Returns the window projected from a low-resolution warp path (see ExpandedResWindow).  The window has to be
+   //    given back by releaseWindow(.) when it is not needed any more.
+   ExpandedResWindow acquireWindow(TimeSeries tsI, TimeSeries tsJ, PAA shrunkI, PAA shrunkJ,
+                                   WarpPath shrunkWarpPath, int searchRadius)
+   {
+      if (windowInUse)
+         return new ExpandedResWindow(tsI, tsJ, shrunkI, shrunkJ, shrunkWarpPath, searchRadius);
+
+      if (window == null)
+         window = new ExpandedResWindow();
+      window.reinitialize(tsI, tsJ, shrunkI, shrunkJ, shrunkWarpPath, searchRadius);
+      windowInUse = true;
+      return window;
+   }  // end acquireWindow(..)
+
+
+   void releaseWindow(SearchWindow w)
+   {
+      if (w == window)
+         windowInUse = false;
+   }
+
+
+   // Returns a memory resident cost matrix for the cells of a window.  The matrix has to be given back by
+   //    releaseMatrix(.) when it is not needed any more.
+   MemoryResidentMatrix acquireMatrix(SearchWindow w)
+   {
+      if ( matrixInUse || (w.size()>MAX_POOLED_CELLS) )
+         return new MemoryResidentMatrix(w);
+
+      if (matrix == null)
+         matrix = new MemoryResidentMatrix(w);
+      else
+         matrix.reset(w);
+      matrixInUse = true;
+      return matrix;
+   }  // end acquireMatrix(.)
+
+
+   void releaseMatrix(MemoryResidentMatrix m)
+   {
+      if (m == matrix)
+         matrixInUse = false;
+   }
+
+}  // end class WarpWorkspace
@@ -17,19 +17,10 @@ class WindowMatrix implements CostMatrix
 
 
    // CONSTRUCTOR
+   // The way the cells are stored is chosen by the default CostMatrixFactory from the size of the window.
    WindowMatrix(SearchWindow searchWindow)
    {
-      try
-      {
-         windowCells = new MemoryResidentMatrix(searchWindow);
-      }
-      catch (OutOfMemoryError e)
-      {
-         System.err.println("Ran out of memory initializing window matrix, all cells in the window cannot fit into " +
-                            "main memory.  Will use a swap file instead (will run ~50% slower)");
-         System.gc();
-         windowCells = new SwapFileMatrix(searchWindow);
-      }  // end try
+      windowCells = CostMatrixFactory.getDefault().create(searchWindow, true);
    }  // end Constructor
 
 
@@ -55,18 +46,12 @@ class WindowMatrix implements CostMatrix
 
    public void freeMem()
    {
-      // Resources only need to be freed for a SwapFileMatrix.
-      if (windowCells instanceof SwapFileMatrix)
-      {
-         try
-         {
-            ((SwapFileMatrix)windowCells).freeMem();
-         }
-         catch (Throwable t)
-         {
-            // ignore the exception
-         }  // end try
-      }  // end if
+      // Resources only need to be freed for the matrices that are not on the heap, a memory resident matrix is given
+      //    back to the workspace of the thread so that it can be reused.
+      if (windowCells instanceof ChunkedBufferMatrix)
+         ((ChunkedBufferMatrix)windowCells).freeMem();
+      else if (windowCells instanceof MemoryResidentMatrix)
+         WarpWorkspace.current().releaseMatrix((MemoryResidentMatrix)windowCells);
    }  // end freeMem()
 
 }  // end WindowMatrix
@@ -0,0 +1,183 @@
+/*
+ * WindowedWarpEngine.java
+ *
+ * Az ImprovedDTW keresési ablakkal korlátozott változata.
+ */
+
+package com.dtw;
+
+import com.timeseries.TimeSeries;
+
+/**
+ * A keresési ablakkal (SearchWindow) korlátozott súlyozott DTW számítása. Mindkét idősort egyszer
+ * alakítja sorfolytonos tömbbé, minden cella helyi költségét pontosan egyszer számolja ki, és azt
+ * a három szomszéd minimumához adja hozzá (ez bitre ugyanazt adja, mint a helyi költséget mindhárom
+ * szomszédhoz külön hozzáadni, majd a minimumot venni). A kiszámolt cellák számát számlálja, így az
+ * ellenőrizhető. Egy példányt egyszerre csak egy szál használhat.
+ */
+public class WindowedWarpEngine
+{
+   // PRIVATE DATA
+   private final double[] weights;
+   private long evaluatedCells;   // number of local costs calculated
+
+
+   // CONSTRUCTOR
+   /**
+    * @param coordWeights koordináták súlyai
+    */
+   public WindowedWarpEngine(double[] coordWeights)
+   {
+      this.weights = coordWeights;
+   }
+
+
+   // FUNCTIONS
+   /**
+    * Az eddig kiszámolt helyi költségek (cellák) száma.
+    * @return cellák száma
+    */
+   public long getEvaluatedCells()
+   {
+      return evaluatedCells;
+   }
+
+
+   /**
+    * Nullázza a kiszámolt cellák számlálóját.
+    */
+   public void resetEvaluatedCells()
+   {
+      evaluatedCells = 0;
+   }
+
+
+   /**
+    * Két idősor ablakkal korlátozott távolsága, az útvonal nélkül (csak két oszlopnyi költséget tárol).
+    * @param tsI első idősor
+    * @param tsJ második idősor
+    * @param window keresési ablak
+    * @return távolság
+    */
+   public double getWarpDistBetween(TimeSeries tsI, TimeSeries tsJ, SearchWindow window)
+   {
+      final CostMatrix costMatrix = CostMatrixFactory.getDefault().create(window, false);
+      fillCostMatrix(tsI, tsJ, window, costMatrix);
+
+      // Minimum Cost is at (maxI, maxJ)
+      return costMatrix.get(tsI.size()-1, tsJ.size()-1);
+   }  // end getWarpDistBetween(..)
+
+
+   public WarpPath getWarpPathBetween(TimeSeries tsI, TimeSeries tsJ, SearchWindow window)
+   {
+      return getWarpInfoBetween(tsI, tsJ, window).getPath();
+   }
+
+
+   /**
+    * Két idősor ablakkal korlátozott távolsága és illesztési útvonala.
+    * @param tsI első idősor
+    * @param tsJ második idősor
+    * @param window keresési ablak
+    * @return távolság és útvonal
+    */
+   public TimeWarpInfo getWarpInfoBetween(TimeSeries tsI, TimeSeries tsJ, SearchWindow window)
+   {
+      final WindowMatrix costMatrix = new WindowMatrix(window);
+      final int maxI = tsI.size()-1;
+      final int maxJ = tsJ.size()-1;
+
+      fillCostMatrix(tsI, tsJ, window, costMatrix);
+
+      // Minimum Cost is at (maxI, maxJ)
+      final double minimumCost = costMatrix.get(maxI, maxJ);
+
+      // Find the Warp Path by searching the matrix from the solution at
+      //    (maxI, maxJ) to the beginning at (0,0).  At each step move through
+      //    the matrix 1 step left, down, or diagonal, whichever has the
+      //    smallest cost.  Favor diagonal moves and moves towards the i==j
+      //    axis to break ties.
+      final WarpPath minCostPath = new WarpPath(maxI+maxJ-1);
+      int i = maxI;
+      int j = maxJ;
+      minCostPath.addFirst(i, j);
+      while ((i>0) || (j>0))
+      {
+         // Find the costs of moving in all three possible directions (left,
+         //    down, and diagonal (down and left at the same time).
+         final double diagCost = ((i>0) && (j>0)) ? costMatrix.get(i-1, j-1) : Double.POSITIVE_INFINITY;
+         final double leftCost = (i>0) ? costMatrix.get(i-1, j) : Double.POSITIVE_INFINITY;
+         final double downCost = (j>0) ? costMatrix.get(i, j-1) : Double.POSITIVE_INFINITY;
+
+         final int direction = ImprovedDTW.traceDirection(i, j, diagCost, leftCost, downCost);
+         if (direction == ImprovedDTW.DIAGONAL)
+         {
+            i--;
+            j--;
+         }
+         else if (direction == ImprovedDTW.LEFT)
+            i--;
+         else
+            j--;
+
+         // Add the current step to the warp path.
+         minCostPath.addFirst(i, j);
+      }  // end while loop
+
+      // Free any rescources associated with the costMatrix (a swap file may have been created if the swa file did not
+      //    fit into main memory).
+      costMatrix.freeMem();
+
+      return new TimeWarpInfo(minimumCost, minCostPath);
+   }  // end getWarpInfoBetween(..)
+
+
+   // Fills the cells of the window in 'costMatrix' column by column, from the bottom up.
+   private void fillCostMatrix(TimeSeries tsI, TimeSeries tsJ, SearchWindow window, CostMatrix costMatrix)
+   {
+      if (tsI.numOfDimensions() != tsJ.numOfDimensions())
+         throw new InternalError("ERROR:  cannot calculate the distance "
+                                 + "between vectors of different sizes.");
+
+      final int dims = tsI.numOfDimensions();
+      final double[] pointsI = tsI.toPackedArray();
+      final double[] pointsJ = tsJ.toPackedArray();
+      long cells = 0;
+
+      // Traverse the window cells in the order that the cost matrix is filled.
+      //    (first to last column (0..maxI), bottom to top (minJforI(i)..maxJforI(i))
+      for (int i=window.minI(); i<=window.maxI(); i++)
+      {
+         final int offsetI = i*dims;
+         final int minJforI = window.minJforI(i);
+         final int maxJforI = window.maxJforI(i);
+
+         for (int j=minJforI; j<=maxJforI; j++)
+         {
+            // The local cost of the cell is calculated only once.
+            final double localCost = ImprovedDTW.weightedEuclideanDist(pointsI, offsetI, pointsJ, j*dims, dims, weights);
+
+            if ( (i==0) && (j==0) )      // bottom left cell (first row AND first column)
+               costMatrix.put(i, j, localCost);
+            else if (i == 0)             // first column
+               costMatrix.put(i, j, localCost + costMatrix.get(i, j-1));
+            else if (j == 0)             // first row
+               costMatrix.put(i, j, localCost + costMatrix.get(i-1, j));
+            else                         // not first column or first row
+            {
+               // (i,j) = LocalCost(i,j) + minGlobalCost{(i-1,j),(i-1,j-1),(i,j-1)}
+               final double minGlobalCost = Math.min(costMatrix.get(i-1, j),
+                                                     Math.min(costMatrix.get(i-1, j-1),
+                                                              costMatrix.get(i, j-1)));
+               costMatrix.put(i, j, minGlobalCost + localCost);
+            }  // end if
+         }  // end for loop
+
+         cells += maxJforI-minJforI+1;
+      }  // end for loop
+
+      evaluatedCells += cells;
+   }  // end fillCostMatrix(..)
+
+}  // end class WindowedWarpEngine
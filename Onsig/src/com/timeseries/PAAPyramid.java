@@ -0,0 +1,95 @@
+/*
+ * PAAPyramid.java
+ *
+ * Egy idősor egyre kisebb felbontású PAA közelítései.
+ */
+
+package com.timeseries;
+
+import java.util.ArrayList;
+
+
+// The PAA approximations of a time series at decreasing resolutions, as used by FastDTW.  Level 0 is the time series
+//    itself, every further level is the PAA of the previous level shrunk by 'resolutionFactor' (the size is rounded
+//    down), until a level has at most 'minSize' points (or cannot be shrunk any more).  The levels are built once, in
+//    the constructor, and they must not be modified.
+public class PAAPyramid
+{
+   // PRIVATE DATA
+   private final TimeSeries[] levels;
+   private final double resolutionFactor;
+   private final int minSize;
+
+
+
+   // CONSTRUCTOR
+   public PAAPyramid(TimeSeries ts, double resolutionFactor, int minSize)
+   {
+      if (resolutionFactor <= 1.0)
+         throw new InternalError("ERROR:  The resolution factor of a PAA pyramid must be greater than 1 " +
+                                 "(resolutionFactor=" + resolutionFactor + ").");
+
+      this.resolutionFactor = resolutionFactor;
+      this.minSize = minSize;
+
+      final ArrayList<TimeSeries> levelList = new ArrayList<TimeSeries>();
+      TimeSeries current = ts;
+      levelList.add(current);
+      while (current.size() > minSize)
+      {
+         final int shrunkSize = (int)(current.size()/resolutionFactor);
+         if (shrunkSize <= 0)
+            break;   // the time series cannot be shrunk any more
+
+         current = new PAA(current, shrunkSize);
+         levelList.add(current);
+      }  // end while loop
+
+      levels = levelList.toArray(new TimeSeries[levelList.size()]);
+   }  // end Constructor
+
+
+
+   // PUBLIC FUNCTIONS
+   public int numOfLevels()
+   {
+      return levels.length;
+   }
+
+
+   // Level 0 is the original time series, level 1 is its PAA, level 2 is the PAA of level 1, ...
+   public TimeSeries getLevel(int level)
+   {
+      return levels[level];
+   }
+
+
+   // The PAA at a level greater than 0 (the aggregate point sizes are needed to project a warp path to the next level).
+   public PAA getAggregateLevel(int level)
+   {
+      if (level == 0)
+         throw new InternalError("ERROR:  Level 0 of a PAA pyramid is the original time series.");
+      return (PAA)levels[level];
+   }
+
+
+   public double getResolutionFactor()
+   {
+      return resolutionFactor;
+   }
+
+
+   public int getMinSize()
+   {
+      return minSize;
+   }
+
+
+   // Returns true if the pyramid has all levels of a pyramid built with the specified parameters (a pyramid built
+   //    down to a smaller size has more levels).
+   public boolean covers(double resolutionFactor, int minSize)
+   {
+      return (this.resolutionFactor==resolutionFactor) && (this.minSize<=minSize);
+   }
+
+}  // end class PAAPyramid
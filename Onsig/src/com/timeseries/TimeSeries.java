@@ -227,18 +227,17 @@ public class TimeSeries
    }  // end constructor
 
    /**
-    * Time serie copy constructor. 
+    * Time serie copy constructor. Replaces the contents of this time serie with a deep copy
+    * of 'ts' (the labels, the time readings and new points with the same measurements).
     * @param ts original timeserie
     */
    public void copy(TimeSeries ts) {
+	   clear();	// addLast(..) adds the time readings and checks the number of labels
 	   for ( String s : (ArrayList<String>)ts.getLabels() ) 
 		   this.labels.add(s);
 	   
-	   for ( int i = 0 ; i < ts.numOfPts() ; i++ ) 
-		   this.timeReadings.add(ts.getTimeAtNthPoint(i));
-	   
 	   for ( int i = 0 ; i < ts.numOfPts() ; i++ )
-		   addLast(i, new TimeSeriesPoint(ts.getMeasurementVector(i)));
+		   addLast(ts.getTimeAtNthPoint(i), new TimeSeriesPoint(ts.getMeasurementVector(i)));
    }
 
    // FUNCTIONS
@@ -344,6 +343,30 @@ public class TimeSeries
    }
 
 
+   // Returns the measurements of all points in a single row-major array, the d-th measurement of the n-th point is
+   //    stored at index n*numOfDimensions()+d.  Distance kernels can work on this array directly instead of looking
+   //    up a TimeSeriesPoint for every cell of the cost matrix.
+   public double[] toPackedArray()
+   {
+      return toPackedArray(null);
+   }
+
+
+   // Same as toPackedArray(), but the values are written into 'dest' if it is large enough (a new array is allocated
+   //    otherwise).  The array containing the values is returned.
+   public double[] toPackedArray(double[] dest)
+   {
+      final int dims = this.numOfDimensions();
+      final int packedSize = this.size()*dims;
+      final double[] packed = ((dest!=null) && (dest.length>=packedSize)) ? dest : new double[packedSize];
+
+      for (int pt=0; pt<this.size(); pt++)
+         System.arraycopy(((TimeSeriesPoint)tsArray.get(pt)).toArray(), 0, packed, pt*dims, dims);
+
+      return packed;
+   }  // end toPackedArray(.)
+
+
    public void setMeasurement(int pointIndex, int valueIndex, double newValue)
    {
       ((TimeSeriesPoint)tsArray.get(pointIndex)).set(valueIndex, newValue);
@@ -0,0 +1,185 @@
+/*
+ * Parallel.java
+ *
+ * Egymástól független, sorszámozott részfeladatok párhuzamos végrehajtása.
+ */
+
+package com.util;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/**
+ * Egymástól független, 0..count-1 sorszámú részfeladatok végrehajtása egy Executor szálain. A
+ * részfeladatokat a szálak (és a hívó szál) egy közös számlálóról veszik el, így a gyorsabban végző
+ * szálak több részfeladatot kapnak. A hívó szál is dolgozik, és csak a már elkezdett részfeladatokra
+ * vár, ezért az Executor egy szálából hívva (beágyazott párhuzamosítás) sem akad el, akkor sem, ha
+ * az Executor összes szála foglalt.
+ * <p>
+ * Az alapértelmezett Executor szálainak száma a "com.util.threads" rendszerjellemzővel állítható,
+ * ennek hiányában a processzorok száma. A szálai démon szálak, így nem akadályozzák a program
+ * kilépését.
+ */
+public final class Parallel
+{
+   /**
+    * Egy sorszámozott részfeladat.
+    */
+   public interface IndexedTask
+   {
+      /**
+       * Végrehajtja az adott sorszámú részfeladatot.
+       * @param index a részfeladat sorszáma
+       */
+      void run(int index);
+   }
+
+
+   // CONSTANTS
+   private static final int DEFAULT_PARALLELISM =
+         Math.max(1, Integer.getInteger("com.util.threads", Runtime.getRuntime().availableProcessors()).intValue());
+
+
+   // PRIVATE DATA
+   private static ExecutorService defaultExecutor;   // created at the first request
+
+
+   // CONSTRUCTOR
+   private Parallel()
+   {
+   }
+
+
+   // FUNCTIONS
+   /**
+    * Az alapértelmezett Executor szálainak száma.
+    * @return szálak száma
+    */
+   public static int getDefaultParallelism()
+   {
+      return DEFAULT_PARALLELISM;
+   }
+
+
+   /**
+    * A közösen használt alapértelmezett Executor (az első kéréskor jön létre). Egy szál esetén
+    * null, ekkor a részfeladatokat a hívó szál hajtja végre.
+    * @return az alapértelmezett Executor, vagy null
+    */
+   public static synchronized ExecutorService getDefaultExecutor()
+   {
+      if ( (defaultExecutor==null) && (DEFAULT_PARALLELISM>1) )
+      {
+         final AtomicInteger threadCount = new AtomicInteger();
+         defaultExecutor = Executors.newFixedThreadPool(DEFAULT_PARALLELISM, new ThreadFactory()
+         {
+            public Thread newThread(Runnable r)
+            {
+               final Thread thread = new Thread(r, "com.util.Parallel-" + threadCount.incrementAndGet());
+               thread.setDaemon(true);
+               return thread;
+            }
+         });
+      }  // end if
+
+      return defaultExecutor;
+   }  // end getDefaultExecutor()
+
+
+   /**
+    * Végrehajtja a 0..count-1 sorszámú részfeladatokat az alapértelmezett Executor szálain.
+    * @param count a részfeladatok száma
+    * @param task a részfeladatok
+    */
+   public static void forEach(int count, IndexedTask task)
+   {
+      forEach(count, task, getDefaultExecutor(), DEFAULT_PARALLELISM);
+   }
+
+
+   /**
+    * Végrehajtja a 0..count-1 sorszámú részfeladatokat a megadott Executor legfeljebb
+    * 'parallelism'-1 szálán és a hívó szálon, és megvárja, amíg mindegyik befejeződik. Ha egy
+    * részfeladat kivételt dob, a még el nem kezdett részfeladatok elmaradnak, és a hívó az első
+    * kivételt kapja meg (az ellenőrzött kivételeket RuntimeException-be csomagolva).
+    * @param count a részfeladatok száma
+    * @param task a részfeladatok
+    * @param executor a szálakat adó Executor (null esetén minden a hívó szálon fut)
+    * @param parallelism a részfeladatokon egyszerre dolgozó szálak legnagyobb száma (a hívóval együtt)
+    */
+   public static void forEach(final int count, final IndexedTask task, Executor executor, int parallelism)
+   {
+      if ( (executor==null) || (parallelism<=1) || (count<=1) )
+      {
+         for (int index=0; index<count; index++)
+            task.run(index);
+         return;
+      }  // end if
+
+      final AtomicInteger nextIndex = new AtomicInteger();
+      final CountDownLatch finished = new CountDownLatch(count);
+      final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+      final Runnable worker = new Runnable()
+      {
+         public void run()
+         {
+            int index;
+            while ( (index=nextIndex.getAndIncrement()) < count )
+            {
+               try
+               {
+                  if (failure.get() == null)
+                     task.run(index);
+               }
+               catch (Throwable t)
+               {
+                  failure.compareAndSet(null, t);
+               }
+               finally
+               {
+                  finished.countDown();
+               }  // end try
+            }  // end while loop
+         }  // end run()
+      };
+
+      // A helper that starts after all the tasks have been taken finds nothing to do.
+      final int helpers = Math.min(parallelism, count)-1;
+      for (int x=0; x<helpers; x++)
+         executor.execute(worker);
+      worker.run();
+
+      // Only the tasks taken by running helpers are left.
+      boolean interrupted = false;
+      while (true)
+      {
+         try
+         {
+            finished.await();
+            break;
+         }
+         catch (InterruptedException e)
+         {
+            interrupted = true;
+         }  // end try
+      }  // end while loop
+      if (interrupted)
+         Thread.currentThread().interrupt();
+
+      final Throwable t = failure.get();
+      if (t instanceof RuntimeException)
+         throw (RuntimeException)t;
+      else if (t instanceof Error)
+         throw (Error)t;
+      else if (t != null)
+         throw new RuntimeException(t);
+   }  // end forEach(..)
+
+}  // end class Parallel
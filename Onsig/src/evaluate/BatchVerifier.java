@@ -0,0 +1,239 @@
+package evaluate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.util.Parallel;
+
+import signature.Signature;
+
+/**
+ * Sok aláírás ellenőrzése egyszerre, több aláíró betanított modelljével
+ * (lásd ImprovedDTWVerifier). Egy feladat egy (aláírás, aláíró) pár. A
+ * feladatokat aláírók szerint csoportosítja, és egy aláíró feladatait
+ * kis, egymás utáni darabokra osztja, így egy szál sokáig ugyanazzal a
+ * sablonnal dolgozik. Minden szálnak saját feladatsora van: a szál a sora
+ * elejéről dolgozik, ha pedig kiürült, egy másik szál sorának végéről lop
+ * egy darabot (az ott lévő aláíróhoz a kirabolt szál jut el legkésőbb).
+ * <p>
+ * Az eredményeket a ResultListener kapja meg, amint elkészültek, a
+ * feladatokat végrehajtó szálakon, tetszőleges sorrendben.
+ * @author sborde
+ *
+ */
+public class BatchVerifier {
+
+	/**
+	 * Az elkészült döntések fogadója. Több szálból egyszerre is hívódhat.
+	 */
+	public interface ResultListener {
+
+		/**
+		 * Egy aláírás ellenőrzése elkészült.
+		 * @param probeIndex az aláírás sorszáma a kapott listában
+		 * @param signer az aláíró azonosítója
+		 * @param label osztálycímke (lásd ImprovedDTWVerifier.verify(Signature))
+		 */
+		void verified(int probeIndex, String signer, double label);
+	}
+
+	/**
+	 * Egy aláíró egymás utáni feladatainak egy darabja.
+	 */
+	private static final class Chunk {
+
+		private final String signer;
+		private final ImprovedDTWVerifier verifier;
+		private final int[] probeIndices;
+
+		private Chunk(String signer, ImprovedDTWVerifier verifier, int[] probeIndices) {
+			this.signer = signer;
+			this.verifier = verifier;
+			this.probeIndices = probeIndices;
+		}
+	}
+
+	/**
+	 * Egy darabban lévő feladatok legnagyobb száma. Kisebb darabokkal
+	 * egyenletesebb a terheléselosztás, nagyobbakkal ritkábban vált sablont egy szál.
+	 */
+	private static final int CHUNK_SIZE = 8;
+
+	/**
+	 * Aláírók modelljei azonosító szerint.
+	 */
+	private final Map<String, ImprovedDTWVerifier> verifiers;
+
+	/**
+	 * A szálakat adó Executor (null esetén minden a hívó szálon fut).
+	 */
+	private final Executor executor;
+
+	/**
+	 * Az egyszerre dolgozó szálak legnagyobb száma (a hívóval együtt).
+	 */
+	private final int parallelism;
+
+	/**
+	 * Az aláírók modelljeit kapja, és az alapértelmezett Executort használja (lásd Parallel).
+	 * @param verifiers aláírók modelljei azonosító szerint
+	 */
+	public BatchVerifier(Map<String, ImprovedDTWVerifier> verifiers) {
+		this(verifiers, Parallel.getDefaultExecutor(), Parallel.getDefaultParallelism());
+	}
+
+	/**
+	 * Az aláírók modelljeit és a használandó szálakat kapja.
+	 * @param verifiers aláírók modelljei azonosító szerint
+	 * @param executor a szálakat adó Executor (null esetén minden a hívó szálon fut)
+	 * @param parallelism az egyszerre dolgozó szálak legnagyobb száma (a hívóval együtt)
+	 */
+	public BatchVerifier(Map<String, ImprovedDTWVerifier> verifiers, Executor executor, int parallelism) {
+		this.verifiers = Collections.unmodifiableMap(new HashMap<String, ImprovedDTWVerifier>(verifiers));
+		this.executor = executor;
+		this.parallelism = Math.max(1, parallelism);
+	}
+
+	/**
+	 * Minden aláírást ellenőriz a megadott aláírók mindegyikével (N aláírás, M aláíró
+	 * esetén N*M feladat), és megvárja, amíg mindegyik elkészül.
+	 * @param probes vizsgálandó aláírások
+	 * @param signers aláírók azonosítói
+	 * @param listener az eredmények fogadója
+	 */
+	public void verifyAll(List<Signature> probes, Collection<String> signers, ResultListener listener) {
+		Map<String, List<Integer>> jobs = new LinkedHashMap<String, List<Integer>>();
+		for ( String signer : signers ) {
+			List<Integer> indices = new ArrayList<Integer>(probes.size());
+			for ( int i = 0 ; i < probes.size() ; i++ )
+				indices.add(i);
+			jobs.put(signer, indices);
+		}
+		run(probes, jobs, listener);
+	}
+
+	/**
+	 * Minden aláírást a hozzá megadott (állított) aláíró modelljével ellenőriz, és
+	 * megvárja, amíg mindegyik elkészül.
+	 * @param probes vizsgálandó aláírások
+	 * @param claimedSigners az aláírások állított aláírói, ugyanabban a sorrendben
+	 * @param listener az eredmények fogadója
+	 */
+	public void verify(List<Signature> probes, List<String> claimedSigners, ResultListener listener) {
+		if ( probes.size() != claimedSigners.size() )
+			throw new IllegalArgumentException("Az aláírások és az aláírók száma különbözik.");
+
+		Map<String, List<Integer>> jobs = new LinkedHashMap<String, List<Integer>>();
+		for ( int i = 0 ; i < probes.size() ; i++ ) {
+			List<Integer> indices = jobs.get(claimedSigners.get(i));
+			if ( indices == null ) {
+				indices = new ArrayList<Integer>();
+				jobs.put(claimedSigners.get(i), indices);
+			}
+			indices.add(i);
+		}
+		run(probes, jobs, listener);
+	}
+
+	/**
+	 * Minden aláírást a hozzá megadott (állított) aláíró modelljével ellenőriz.
+	 * @param probes vizsgálandó aláírások
+	 * @param claimedSigners az aláírások állított aláírói, ugyanabban a sorrendben
+	 * @return az aláírások osztálycímkéi, ugyanabban a sorrendben
+	 */
+	public double[] verify(List<Signature> probes, List<String> claimedSigners) {
+		final double[] labels = new double[probes.size()];
+		verify(probes, claimedSigners, new ResultListener() {
+			public void verified(int probeIndex, String signer, double label) {
+				labels[probeIndex] = label;	//minden aláírás saját elembe kerül
+			}
+		});
+		return labels;
+	}
+
+	/**
+	 * Feldarabolja az aláírónként csoportosított feladatokat, szétosztja őket a szálak
+	 * sorai között, és végrehajtja őket.
+	 * @param probes vizsgálandó aláírások
+	 * @param jobs aláírók és a velük ellenőrizendő aláírások sorszámai
+	 * @param listener az eredmények fogadója
+	 */
+	private void run(final List<Signature> probes, Map<String, List<Integer>> jobs, final ResultListener listener) {
+		List<Chunk> chunks = new ArrayList<Chunk>();
+		for ( Map.Entry<String, List<Integer>> entry : jobs.entrySet() ) {
+			ImprovedDTWVerifier verifier = this.verifiers.get(entry.getKey());
+			if ( verifier == null )
+				throw new IllegalArgumentException("Ismeretlen aláíró: " + entry.getKey());
+
+			List<Integer> indices = entry.getValue();
+			for ( int from = 0 ; from < indices.size() ; from += CHUNK_SIZE ) {
+				int[] chunk = new int[Math.min(CHUNK_SIZE, indices.size()-from)];
+				for ( int i = 0 ; i < chunk.length ; i++ )
+					chunk[i] = indices.get(from+i);
+				chunks.add(new Chunk(entry.getKey(), verifier, chunk));
+			}
+		}
+		if ( chunks.isEmpty() )
+			return;
+
+		/* Egy aláíró darabjai egymás után, ugyanannak a szálnak a sorába kerülnek, mindig a legkevesebb feladatot kapott szálhoz. */
+		final int workers = Math.min(this.parallelism, chunks.size());
+		final List<LinkedBlockingDeque<Chunk>> queues = new ArrayList<LinkedBlockingDeque<Chunk>>(workers);
+		int[] load = new int[workers];
+		for ( int w = 0 ; w < workers ; w++ )
+			queues.add(new LinkedBlockingDeque<Chunk>());
+		int c = 0;
+		while ( c < chunks.size() ) {
+			int target = 0;
+			for ( int w = 1 ; w < workers ; w++ )
+				if ( load[w] < load[target] )
+					target = w;
+			String signer = chunks.get(c).signer;
+			for ( ; c < chunks.size() && chunks.get(c).signer.equals(signer) ; c++ ) {
+				queues.get(target).addLast(chunks.get(c));
+				load[target] += chunks.get(c).probeIndices.length;
+			}
+		}
+
+		final AtomicBoolean failed = new AtomicBoolean();	//hiba esetén a többi szál sem kezd új darabba
+		Parallel.forEach(workers, new Parallel.IndexedTask() {
+			public void run(int worker) {
+				boolean finished = false;
+				try {
+					Chunk chunk;
+					while ( !failed.get() && (chunk = nextChunk(queues, worker)) != null ) {
+						for ( int i : chunk.probeIndices )
+							listener.verified(i, chunk.signer, chunk.verifier.verify(probes.get(i)));
+					}
+					finished = true;
+				} finally {
+					if ( !finished )
+						failed.set(true);
+				}
+			}
+		}, this.executor, workers);
+	}
+
+	/**
+	 * A szál következő darabja: a saját sora elejéről, ha az üres, akkor egy másik
+	 * szál sorának végéről.
+	 * @param queues a szálak sorai
+	 * @param worker a szál sorszáma
+	 * @return a következő darab, vagy null, ha már nincs több
+	 */
+	private static Chunk nextChunk(List<LinkedBlockingDeque<Chunk>> queues, int worker) {
+		Chunk chunk = queues.get(worker).pollFirst();
+		for ( int i = 1 ; chunk == null && i < queues.size() ; i++ )
+			chunk = queues.get((worker+i) % queues.size()).pollLast();
+		return chunk;
+	}
+
+}
@@ -1,8 +1,11 @@
 package evaluate;
 
 import com.timeseries.TimeSeries;
-import com.dtw.TimeWarpInfo;
+import com.dtw.DistanceEngine;
+import com.dtw.FastDTWEngine;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 
 import training.TrainingSet;
 
@@ -27,6 +30,15 @@ public class DTWClassifier {
     /* Küszöbérték. */
     private double threshold;
 
+    /* Az alsó becslések összehasonlításánál használt relatív tűrés. */
+    private static final double LOWER_BOUND_SLACK = 1e-9;
+
+    /* Távolságszámító algoritmus; ha null, a FastDTWEngine-t használjuk a döntéskor kapott ablakmérettel. */
+    private DistanceEngine engine;
+
+    /* A távolságszámítás koordináta súlyai az alsó becslésekhez; null esetén súlyozatlan euklideszi távolság. */
+    private double[] coordWeights;
+
     private double penUpTime;
     private double penDownTime;
 
@@ -40,50 +52,159 @@ public class DTWClassifier {
         this.threshold = th;
     }
 
+    /**
+     * Konstruktor előállítja az osztályozót a megadott távolságszámítással
+     * (pl. PrunedDTWEngine). Ilyenkor a döntéskor kapott ablakméretet nem
+     * használjuk, az alsó becslések pedig az algoritmus koordináta súlyaival
+     * számolnak.
+     * @param g tanítóhalmaz
+     * @param th küszöb együttható
+     * @param engine távolságszámító algoritmus
+     */
+    public DTWClassifier(TrainingSet g, double th, DistanceEngine engine) {
+        this(g, th);
+        this.engine = engine;
+        this.coordWeights = engine.getCoordWeights();
+    }
+
     /**
      * Megállapítja egy aláírásról, hogy a tanítóhalmaz alapján
-     * hamis vagy eredeti.
+     * hamis vagy eredeti. A teljes DTW távolság számítása előtt
+     * a tanítóhalmaz burkolói alapján alsó becslést (LB_Kim, LB_Keogh)
+     * ad a távolságra, és a DTW-t csak akkor futtatja, ha a becslésből
+     * nem dönthető el az eredmény.
      * @param toTest a tesztelendő aláírás idősora
      * @param window ablakméret
      * @param decisionType döntés típusa: min, max, avg
      * @return 1 ha elfogadja, 0 ha nem
      */
     public int isValidSignature(TimeSeries toTest, int window, int decisionType){
-            double elements = 0;    //hány elemmel hasonlítottuk össze
+            ArrayList<signature.Signature> genuineSigs = genuine.getTrainingSet();
+            int n = genuineSigs.size();
 
-            /* A tanítóhalmaztól vett */
-            double minDistance = 0; //legkisebb
-            double maxDistance = 0; //legnagyobb
-            double averageDistance = 0; //átlagos távolság
+            if ( n == 0 ) { //üres tanítóhalmaz: a távolságok kezdőértékei alapján döntünk
+                switch(decisionType) {
+                    case 0: return decide(genuine.getMinDistance(), 0, threshold);
+                    case 1: return decide(genuine.getMaxDistance(), 0, threshold);
+                    case 2: return decide(genuine.getAverageDistance(), Double.NaN, threshold);
+                    default: return 0;
+                }
+            }
 
-            ArrayList<signature.Signature> genuineSigs = genuine.getTrainingSet();
-            /* Vesszük a tanítóhalmaz összes elemétől vett távolságot */
-            for ( int i = 0 ; i < genuineSigs.size() ; i++) {
-                    final TimeWarpInfo info = com.dtw.FastDTW.getWarpInfoBetween(genuineSigs.get(i).getWholeSignature(), toTest, window);
-                    if ( i == 0 )  //első elempár esetén inicializálás
-                        minDistance = maxDistance = info.getDistance();
-                    
-                    if ( minDistance > info.getDistance() ) {   //min és max érték kiválasztása
-                        minDistance = info.getDistance();
-                    } else if ( maxDistance < info.getDistance() ) {
-                        maxDistance = info.getDistance();
-                    }
-
-                    elements++;
-                    averageDistance += info.getDistance();
+            double limit;   //a tanítóhalmazon mért távolság és a küszöb szorzata: ennél kisebb távolságot fogadunk el
+            switch(decisionType) {
+                case 0: limit = genuine.getMinDistance()*threshold; break;
+                case 1: limit = genuine.getMaxDistance()*threshold; break;
+                case 2: limit = genuine.getAverageDistance()*threshold; break;
+                default: return 0;
             }
 
-            averageDistance /= elements;    //átlagos távolság számítás
+            /* Alsó becslés a tanítóhalmaz összes elemétől vett távolságra: előbb LB_Kim, és ha az nem dönt, LB_Keogh */
+            double[] lowerBounds = new double[n];
+            for ( int i = 0 ; i < n ; i++ ) {
+                lowerBounds[i] = genuine.getEnvelope(i).lbKim(toTest, coordWeights);
+                if ( !exceeds(lowerBounds[i], limit) ) {
+                    lowerBounds[i] = genuine.getEnvelope(i).lbKeogh(toTest, coordWeights);
+                }
+            }
 
-            int valid = 0;
-            
             switch(decisionType) {
-                case 0: valid = decide(genuine.getMinDistance(), minDistance, threshold); break;
-                case 1: valid = decide(genuine.getMaxDistance(), maxDistance, threshold); break;
-                case 2: valid = decide(genuine.getAverageDistance(), averageDistance, threshold); break;
-                default: valid = 0; break;
+                case 0: return decideByMin(genuineSigs, toTest, window, lowerBounds, limit);
+                case 1: return decideByMax(genuineSigs, toTest, window, lowerBounds, limit);
+                default: return decideByAverage(genuineSigs, toTest, window, lowerBounds, limit);
             }
-            return valid;
+    }
+
+    /**
+     * Legkisebb távolság szerinti döntés: elfogadjuk, ha van olyan
+     * tanítóelem, amelytől a távolság a határ alatt van. A DTW-t csak
+     * azokra az elemekre számoljuk, amelyeknél az alsó becslés a határ
+     * alatt van, a becslés szerint növekvő sorrendben.
+     */
+    private int decideByMin(ArrayList<signature.Signature> genuineSigs, TimeSeries toTest, int window, double[] lowerBounds, double limit) {
+            Integer[] order = new Integer[lowerBounds.length];
+            for ( int i = 0 ; i < order.length ; i++ ) {
+                order[i] = i;
+            }
+            final double[] bounds = lowerBounds;
+            Arrays.sort(order, new Comparator<Integer>() {
+                public int compare(Integer a, Integer b) {
+                    return Double.compare(bounds[a], bounds[b]);
+                }
+            });
+
+            for ( int k = 0 ; k < order.length ; k++ ) {
+                int i = order[k];
+                if ( exceeds(lowerBounds[i], limit) ) { //a többi becslés is legalább ekkora
+                    break;
+                }
+                if ( decide(limit, distance(genuineSigs.get(i), toTest, window)) == 1 ) {
+                    return 1;
+                }
+            }
+            return 0;
+    }
+
+    /**
+     * Legnagyobb távolság szerinti döntés: elutasítjuk, ha van olyan
+     * tanítóelem, amelytől a távolság eléri a határt.
+     */
+    private int decideByMax(ArrayList<signature.Signature> genuineSigs, TimeSeries toTest, int window, double[] lowerBounds, double limit) {
+            for ( int i = 0 ; i < lowerBounds.length ; i++ ) {   //előbb csak a becslések alapján
+                if ( exceeds(lowerBounds[i], limit) ) {
+                    return 0;
+                }
+            }
+            for ( int i = 0 ; i < lowerBounds.length ; i++ ) {
+                if ( decide(limit, distance(genuineSigs.get(i), toTest, window)) == 0 ) {
+                    return 0;
+                }
+            }
+            return 1;
+    }
+
+    /**
+     * Átlagos távolság szerinti döntés. A már kiszámolt távolságok és a
+     * hátralévő elemek alsó becslésének összege alsó becslés a távolságok
+     * összegére, így ha ez eléri a határt, a többi DTW-t nem kell kiszámolni.
+     * Ha minden távolságot kiszámoltunk, azokat az eredeti sorrendben adjuk össze.
+     */
+    private int decideByAverage(ArrayList<signature.Signature> genuineSigs, TimeSeries toTest, int window, double[] lowerBounds, double limit) {
+            double elements = lowerBounds.length;
+            double[] boundSums = new double[lowerBounds.length + 1];  //az i. és az utána következő elemek alsó becslésének összege
+            for ( int i = lowerBounds.length - 1 ; i >= 0 ; i-- ) {
+                boundSums[i] = boundSums[i + 1] + lowerBounds[i];
+            }
+
+            double averageDistance = 0;
+            for ( int i = 0 ; i < lowerBounds.length ; i++ ) {
+                if ( exceeds((averageDistance + boundSums[i]) / elements, limit) ) {
+                    return 0;
+                }
+                averageDistance += distance(genuineSigs.get(i), toTest, window);
+            }
+
+            averageDistance /= elements;    //átlagos távolság számítás
+            return decide(limit, averageDistance);
+    }
+
+    /**
+     * A tesztelendő aláírás távolsága a tanítóhalmaz egy elemétől. Ha nem
+     * kaptunk távolságszámító algoritmust, a döntéskor kapott ablakméretű
+     * FastDTWEngine számol.
+     */
+    private double distance(signature.Signature genuineSig, TimeSeries toTest, int window) {
+            DistanceEngine distanceEngine = (engine != null) ? engine : new FastDTWEngine(window);
+            return distanceEngine.getWarpDistBetween(genuineSig.getWholeSignature(), toTest);
+    }
+
+    /**
+     * Eldönti, hogy egy alsó becslés alapján a távolság biztosan eléri-e
+     * a határt. A becslés más sorrendben összegez, mint a DTW, ezért
+     * kis tűréssel hasonlítunk.
+     */
+    private static boolean exceeds(double lowerBound, double limit) {
+            return lowerBound >= limit * (1 + LOWER_BOUND_SLACK);
     }
 
     private void calculateAverageTimes(TimeSeries toTest) {
@@ -96,6 +217,19 @@ public class DTWClassifier {
             }
     }
 
+    /**
+     * Döntést végző függvény a küszöbbel már beszorzott határ alapján.
+     * @param limit a tanítóhalmazon mért távolság és a küszöb szorzata
+     * @param test teszt elem távolsága
+     * @return 1 ha elfogadjuk, 0 ha nem
+     */
+    private int decide(double limit, double test) {
+        if ( limit > test)
+           return 1;
+        else
+           return 0;
+    }
+
     /**
      * Döntést végző függvény.
      * @param train tanítóhalmazon mért távolság D
@@ -40,10 +40,10 @@ public class ImprovedDTWClassifier {
 	 * @return osztálycímke
 	 */
 	public double classify(signature.Signature s,double k) {
-		double distance = trainingSet.calcDistanceFrom(s);
 		double avgDist = trainingSet.getAverageDistance();
 		double avgDev = trainingSet.getDistanceDeviation();
 		double threshold = avgDist + avgDev * k;
+		double distance = trainingSet.calcDistanceFrom(s, threshold);	//a küszöb fölötti távolságot nem kell pontosan kiszámolni
 		
 		if ( distance == Double.MAX_VALUE )
 			return -1;
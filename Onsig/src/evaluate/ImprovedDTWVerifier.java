@@ -0,0 +1,69 @@
+package evaluate;
+
+import signature.Signature;
+import training.EnrolledModel;
+
+/**
+ * Az ImprovedDTWClassifier változtathatatlan, több szálból egyszerre is
+ * használható megfelelője. Egy betanított modellt (lásd
+ * ImprovedTrainingSet.freeze()) és egy rögzített k küszöbértéket tartalmaz.
+ * A döntés ugyanaz, mint az ImprovedDTWClassifier.classify(s, k) eredménye,
+ * de a vizsgált aláírást nem módosítja.
+ * @author sborde
+ *
+ */
+public final class ImprovedDTWVerifier {
+
+	/**
+	 * Betanított modell.
+	 */
+	private final EnrolledModel model;
+	
+	/**
+	 * Küszöbérték (toleranciaszint).
+	 */
+	private final double k;
+	
+	/**
+	 * Az elfogadás határa: átlagos távolság + szórás * k.
+	 */
+	private final double threshold;
+
+	/**
+	 * Eltárolja a modellt és a küszöbértéket.
+	 * @param model betanított modell
+	 * @param k küszöbérték
+	 */
+	public ImprovedDTWVerifier(EnrolledModel model, double k) {
+		this.model = model;
+		this.k = k;
+		this.threshold = model.getAverageDistance() + model.getDistanceDeviation() * k;
+	}
+	
+	public EnrolledModel getModel() {
+		return model;
+	}
+	
+	public double getK() {
+		return k;
+	}
+	
+	/**
+	 * A döntést meghozó metódus, ugyanaz, mint az ImprovedDTWClassifier.classify(s, k).
+	 * Kimenetben egy osztálycímkét ad: 1, ha elfogadtuk, 0, ha elutasítottuk
+	 * az aláírást. Ha a modellben nincs az aláírással egyező szakaszszámú
+	 * sablon, a globális sablonhoz hasonlítjuk.
+	 * @param s vizsgált aláírás
+	 * @return osztálycímke
+	 */
+	public double verify(Signature s) {
+		double distance = model.calcDistanceFrom(s, threshold);	//a küszöb fölötti távolságot nem kell pontosan kiszámolni
+		
+		//ha a távolság nagyobb a küszöbértéknél, akkor elutasítjuk az aláírást
+		if ( distance > threshold )
+			return 0;
+		
+		return 1;
+	}
+	
+}
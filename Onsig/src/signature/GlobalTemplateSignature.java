@@ -2,6 +2,8 @@ package signature;
 
 import java.util.ArrayList;
 
+import com.dtw.DistanceEngine;
+import com.dtw.FastImprovedDTWEngine;
 import com.dtw.WarpPath;
 
 /**
@@ -41,6 +43,11 @@ public class GlobalTemplateSignature extends Signature {
 	 */
 	private double[] coordWeights;
 	
+	/**
+	 * Az aláírások sablonhoz illesztésére használt algoritmus.
+	 */
+	private DistanceEngine engine;
+	
 	/**
 	 * Tesztaláírás számításakor az egyes pontok súlya (ami a konzisztenciájukból adódik).
 	 * Szegmensenként számoljuk.
@@ -67,9 +74,20 @@ public class GlobalTemplateSignature extends Signature {
 	 * @param weights súlyok
 	 */
 	public GlobalTemplateSignature(double[] weights) {
+		this(weights, new FastImprovedDTWEngine(weights));
+	}
+	
+	/**
+	 * Létrehoz egy sablonaláírást, mely alapból üres. Eltárolja 
+	 * az egyes koordináták súlyait és az illesztéshez használt algoritmust.
+	 * @param weights súlyok
+	 * @param engine az aláírások sablonhoz illesztésére használt algoritmus
+	 */
+	public GlobalTemplateSignature(double[] weights, DistanceEngine engine) {
 		super();
 		signatures = new ArrayList<Signature>();
 		this.coordWeights = weights;
+		this.engine = engine;
 		this.segmentsPaths = new ArrayList<WarpPath>();
 	}
 	
@@ -106,13 +124,15 @@ public class GlobalTemplateSignature extends Signature {
 	private void update(int lastIndex, Signature s){
 			for ( int j = 0 ; j < wholeSignature.size(); j++ ) {	//végigvesszük a szegmens pontjait
 				int dim = wholeSignature.getMeasurementVector(0).length;	//hány dimenziós pontokkal dolgozunk
-				ArrayList<Integer> alignedPoints = segmentsPaths.get(lastIndex).getMatchingIndexesForI(j);	//a j. ponthoz igazított pontok indexei
+				WarpPath wp = segmentsPaths.get(lastIndex);
+				int firstAligned = wp.getFirstMatchingIndexForI(j);	//a j. ponthoz igazított pontok indexei: firstAligned..lastAligned
+				int lastAligned = wp.getLastMatchingIndexForI(j);
 				
-				int k = alignedPoints.size();	//az aktuális aláírás illesztése során használt pontok száma
+				int k = lastAligned - firstAligned + 1;	//az aktuális aláírás illesztése során használt pontok száma
 				for ( int d = 0 ; d < dim ; d++ ) {	//dimenziónként frissítjük a pont értékét
 					double templateD = wholeSignature.getMeasurement(j, d) * r.get(j);	//az eddigi érték súlyozva
 					
-					for (Integer t : alignedPoints) {	//minden illesztett ponttal elvégezzük a frissítést
+					for ( int t = firstAligned ; t <= lastAligned ; t++ ) {	//minden illesztett ponttal elvégezzük a frissítést
 						templateD += s.getWholeSignature().getMeasurement(t, d);	//hozzáadjuk az illesztett pont d. koordinátáját
 					}
 					
@@ -136,7 +156,7 @@ public class GlobalTemplateSignature extends Signature {
 					
 			s.resampleWholeSignature(this.wholeSignature.size());	//újramintavételezzük az adott szakaszt
 			
-			WarpPath wp = com.dtw.FastImprovedDTW.getWarpPathBetween(wholeSignature, s.getWholeSignature(), coordWeights);
+			WarpPath wp = engine.getWarpInfoBetween(wholeSignature, s.getWholeSignature()).getPath();
 			segmentsPaths.add(currentSignatureIndex, wp);
 
 			update(currentSignatureIndex, s);
@@ -158,13 +178,13 @@ public class GlobalTemplateSignature extends Signature {
 			double M = 0;
 			for ( int t = 0 ; t < this.segmentsPaths.size() ; t++ ) {	//mindegyik aláíráson
 				WarpPath wp = segmentsPaths.get(t);
-				if ( wp.getMatchingIndexesForI(j).size() == 0 )
+				int firstAligned = wp.getFirstMatchingIndexForI(j);	//a j. ponthoz igazított pontok indexei: firstAligned..lastAligned
+				int lastAligned = wp.getLastMatchingIndexForI(j);
+				if ( lastAligned < firstAligned )
 					System.out.println("Üres");
 				
-				ArrayList<Integer> alignedPoints = segmentsPaths.get(t).getMatchingIndexesForI(j);
-				
-				M += alignedPoints.size();
-				for ( Integer p : alignedPoints ) {
+				M += lastAligned - firstAligned + 1;
+				for ( int p = firstAligned ; p <= lastAligned ; p++ ) {
 					avgd += com.dtw.ImprovedDTW.getLocalCost(this.wholeSignature, signatures.get(t).getWholeSignature(), j, p, coordWeights);	//ez a szumma alatti terület
 				}
 			}
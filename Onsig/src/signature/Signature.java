@@ -67,14 +67,15 @@ public class Signature {
      * @return letett tollú idő
      */
     public int getTotalPenDownTime() {
-    	totalPenDownTime = 0;
+    	int time = 0;	//helyi változóban összegzünk, mert több szál is lekérheti egyszerre
     	for ( int i = 0 ; i < segments.size() ; i++ ) {	//sorra vesszük a szegmenseket
     		if ( !this.segmentPenDown.get(i) )	//csak a lerakott tollú szakasz érdekel most
     			continue;
     		
-    		totalPenDownTime += getSegmentTime(i);
+    		time += getSegmentTime(i);
     	}
-        return totalPenDownTime;
+    	totalPenDownTime = time;
+        return time;
     }
     
     /**
@@ -91,14 +92,15 @@ public class Signature {
      * @return felemelt idő
      */
     public int getTotalPenUpTime() {
-    	totalPenUpTime = 0;
+    	int time = 0;	//helyi változóban összegzünk, mert több szál is lekérheti egyszerre
     	for ( int i = 0 ; i < segments.size() ; i++ ) {	//sorra vesszük a szegmenseket
     		if ( this.segmentPenDown.get(i) )	//csak a felemelt tollú szakasz érdekel most
     			continue;
     		
-    		totalPenUpTime += getSegmentTime(i);
+    		time += getSegmentTime(i);
     	}    	
-        return totalPenUpTime;
+    	totalPenUpTime = time;
+        return time;
     }
 
     /**
@@ -7,8 +7,12 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.concurrent.Executor;
 
+import com.dtw.DistanceEngine;
+import com.dtw.FastImprovedDTWEngine;
 import com.dtw.WarpPath;
+import com.util.Parallel;
 
 /**
  * Egy sablonaláírást reprezentáló osztály. Tárolja az aláírásokat,
@@ -48,6 +52,17 @@ public class TemplateSignature extends Signature {
 	 */
 	private double[] coordWeights;
 	
+	/**
+	 * Az aláírások sablonhoz illesztésére használt algoritmus.
+	 */
+	private DistanceEngine engine;
+	
+	/**
+	 * Az egyes szakaszok illesztését párhuzamosan végző szálakat adja (null esetén
+	 * a hívó szálon, egymás után illesztünk).
+	 */
+	private Executor executor;
+	
 	/**
 	 * Tesztaláírás számításakor az egyes pontok súlya (ami a konzisztenciájukból adódik).
 	 * Szegmensenként számoljuk.
@@ -74,9 +89,33 @@ public class TemplateSignature extends Signature {
 	 * @param weights súlyok
 	 */
 	public TemplateSignature(double[] weights) {
+		this(weights, new FastImprovedDTWEngine(weights));
+	}
+	
+	/**
+	 * Létrehoz egy sablonaláírást, mely alapból üres. Eltárolja 
+	 * az egyes koordináták súlyait és az illesztéshez használt algoritmust.
+	 * @param weights súlyok
+	 * @param engine az aláírások sablonhoz illesztésére használt algoritmus
+	 */
+	public TemplateSignature(double[] weights, DistanceEngine engine) {
+		this(weights, engine, null);
+	}
+	
+	/**
+	 * Létrehoz egy sablonaláírást, mely alapból üres. Eltárolja 
+	 * az egyes koordináták súlyait, az illesztéshez használt algoritmust,
+	 * valamint a szakaszok párhuzamos illesztéséhez használt Executort.
+	 * @param weights súlyok
+	 * @param engine az aláírások sablonhoz illesztésére használt algoritmus (több szálból is használható)
+	 * @param executor a szakaszokat párhuzamosan illesztő szálak (null esetén egymás után illeszt)
+	 */
+	public TemplateSignature(double[] weights, DistanceEngine engine, Executor executor) {
 		super();
 		signatures = new ArrayList<Signature>();
 		this.coordWeights = weights;
+		this.engine = engine;
+		this.executor = executor;
 		this.segmentsPaths = new ArrayList<ArrayList<WarpPath>>();
 	}
 	
@@ -119,13 +158,15 @@ public class TemplateSignature extends Signature {
 			
 			for ( int j = 0 ; j < this.segments.get(i).size(); j++ ) {	//végigvesszük a szegmens pontjait
 				int dim = segments.get(i).getMeasurementVector(j).length;	//hány dimenziós pontokkal dolgozunk
-				ArrayList<Integer> alignedPoints = segmentsPaths.get(lastIndex).get(i).getMatchingIndexesForI(j);	//a j. ponthoz igazított pontok indexei
+				WarpPath wp = segmentsPaths.get(lastIndex).get(i);
+				int firstAligned = wp.getFirstMatchingIndexForI(j);	//a j. ponthoz igazított pontok indexei: firstAligned..lastAligned
+				int lastAligned = wp.getLastMatchingIndexForI(j);
 				
-				int k = alignedPoints.size();	//az aktuális aláírás illesztése során használt pontok száma
+				int k = lastAligned - firstAligned + 1;	//az aktuális aláírás illesztése során használt pontok száma
 				for ( int d = 0 ; d < dim ; d++ ) {	//dimenziónként frissítjük a pont értékét
 					double templateD = this.segments.get(i).getMeasurement(j, d) * r.get(i).get(j);	//az eddigi érték súlyozva
 					
-					for (Integer t : alignedPoints) {	//minden illesztett ponttal elvégezzük a frissítést
+					for ( int t = firstAligned ; t <= lastAligned ; t++ ) {	//minden illesztett ponttal elvégezzük a frissítést
 						
 						templateD += s.getSegment(i).getMeasurement(t, d);	//hozzáadjuk az illesztett pont d. koordinátáját
 					}
@@ -142,7 +183,7 @@ public class TemplateSignature extends Signature {
 	 * Egy új aláírást ad hozzá, mellyel finomíthatja a sablont. 
 	 * @param s hozzáadandó aláírás
 	 */
-	public void addSignature(Signature s) {
+	public void addSignature(final Signature s) {
 		if ( signatures.size() == 0 ) {
 			//Első aláírás
 			init(s);
@@ -152,17 +193,21 @@ public class TemplateSignature extends Signature {
 			segmentsPaths.add(currentSignatureIndex, new ArrayList<WarpPath>());
 			if ( this.segments.size()==0 )
 				System.out.println("Nincs szegmens??");
-			for ( int i = 0 ; i < this.segments.size() ; i++ ) {	//végigmegyünk az új aláíráson szegmensenként
-				if ( !this.isPendownSegment(i) ) {	//csak az írási szakaszokkal törődünk
-					segmentsPaths.get(currentSignatureIndex).add(null);	//hogy megegyezzen a szegmensek száma (az egyszerűbb bejárás miatt) adunk null útvonalat is
-					continue;
+			
+			/* A szakaszok illesztése független egymástól, ezért párhuzamosan is végezhető. */
+			final WarpPath[] paths = new WarpPath[this.segments.size()];
+			Parallel.forEach(this.segments.size(), new Parallel.IndexedTask() {
+				public void run(int i) {
+					if ( !isPendownSegment(i) )	//csak az írási szakaszokkal törődünk
+						return;
+					
+					s.resampleSegment(i, segments.get(i).size());	//újramintavételezzük az adott szakaszt
+					paths[i] = engine.getWarpInfoBetween(segments.get(i), s.getSegment(i)).getPath();
 				}
-						
-				s.resampleSegment(i, this.segments.get(i).size());	//újramintavételezzük az adott szakaszt
-				
-				WarpPath wp = com.dtw.FastImprovedDTW.getWarpPathBetween(segments.get(i), s.getSegment(i), coordWeights);
-				segmentsPaths.get(currentSignatureIndex).add( wp );	//hozzáadjuk az adott szegmens útvonalát
-			}
+			}, this.executor, Parallel.getDefaultParallelism());
+			
+			for ( int i = 0 ; i < this.segments.size() ; i++ )	//végigmegyünk az új aláíráson szegmensenként
+				segmentsPaths.get(currentSignatureIndex).add( paths[i] );	//hozzáadjuk az adott szegmens útvonalát (a nem írási szakaszokhoz null útvonalat, hogy megegyezzen a szegmensek száma)
 			
 			update(currentSignatureIndex, s);
 		}
@@ -189,12 +234,13 @@ public class TemplateSignature extends Signature {
 				double M = 0;
 				for ( int t = 0 ; t < this.segmentsPaths.size() ; t++ ) {	//mindegyik aláíráson
 					WarpPath wp = segmentsPaths.get(t).get(i);
-					if ( wp.getMatchingIndexesForI(j).size() == 0 )
+					int firstAligned = wp.getFirstMatchingIndexForI(j);	//a j. ponthoz igazított pontok indexei: firstAligned..lastAligned
+					int lastAligned = wp.getLastMatchingIndexForI(j);
+					if ( lastAligned < firstAligned )
 						System.out.println("Üres");
-					ArrayList<Integer> alignedPoints = segmentsPaths.get(t).get(i).getMatchingIndexesForI(j);
 					
-					M += alignedPoints.size();
-					for ( Integer p : alignedPoints ) {
+					M += lastAligned - firstAligned + 1;
+					for ( int p = firstAligned ; p <= lastAligned ; p++ ) {
 						avgd += com.dtw.ImprovedDTW.getLocalCost(this.segments.get(i), signatures.get(t).getSegment(i), j, p, coordWeights);	//ez a szumma alatti terület
 					}
 				}
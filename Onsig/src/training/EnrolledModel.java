@@ -0,0 +1,220 @@
+package training;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.dtw.DistanceEngine;
+import com.dtw.FastImprovedDTWEngine;
+import com.dtw.FastWarpEngine;
+import com.timeseries.PAAPyramid;
+import com.timeseries.TimeSeries;
+
+import signature.GlobalTemplateSignature;
+import signature.Signature;
+import signature.TemplateSignature;
+
+/**
+ * Egy aláíró betanított modellje, az ImprovedTrainingSet sablonjainak és
+ * távolságstatisztikáinak változtathatatlan pillanatképe (lásd
+ * ImprovedTrainingSet.freeze()). A sablonok pontjait lemásolja, így a
+ * tanítóhalmaz későbbi változásai nem hatnak rá. A távolságszámítás nem
+ * módosítja a vizsgált aláírást (a szakaszokat új idősorba mintavételezi
+ * újra), ezért egy modell egyszerre több szálból is használható, ha a
+ * távolságmotor is használható több szálból.
+ * @author sborde
+ *
+ */
+public final class EnrolledModel {
+
+	/**
+	 * Egy sablon változtathatatlan másolata: a szakaszai, a szakaszok
+	 * pontsúlyai és a teljes írási idő. A szakaszok PAA piramisai az első
+	 * kéréskor készülnek el, és mivel a szakaszok nem változnak, minden
+	 * további FastImprovedDTW számítás újra felhasználja őket.
+	 */
+	private static final class FrozenTemplate {
+
+		private final TimeSeries[] segments;
+		private final double[][] pointWeights;
+		private final int totalTime;
+		private final PAAPyramid[] pyramids;
+
+		private FrozenTemplate(TimeSeries[] segments, double[][] pointWeights, int totalTime) {
+			this.segments = segments;
+			this.pointWeights = pointWeights;
+			this.totalTime = totalTime;
+			this.pyramids = new PAAPyramid[segments.length];
+		}
+
+		/**
+		 * Egy szakasz PAA piramisa az alapértelmezett felbontáscsökkentéssel, bármely
+		 * keresési sugárhoz elég mélyre.
+		 * @param i szakasz sorszáma
+		 * @return a szakasz piramisa
+		 */
+		private synchronized PAAPyramid getPyramid(int i) {
+			if ( pyramids[i] == null )
+				pyramids[i] = new PAAPyramid(segments[i], FastWarpEngine.DEFAULT_RESOLUTION_FACTOR, FastWarpEngine.SMALLEST_MIN_SIZE);
+			return pyramids[i];
+		}
+	}
+
+	/**
+	 * Sablonok szakaszok száma szerint indexelve.
+	 */
+	private final Map<Integer, FrozenTemplate> templates;
+
+	/**
+	 * Globális sablon, egyetlen szakasza a teljes aláírás.
+	 */
+	private final FrozenTemplate globalTemplate;
+
+	/**
+	 * A sablontól mért távolság számítása.
+	 */
+	private final DistanceEngine distanceEngine;
+
+	/**
+	 * Az aláírások átlagos eltérése a saját templatejüktől.
+	 */
+	private final double averageDistance;
+
+	/**
+	 * Az aláírások távolságának átlagos szórása a saját templatejüktől.
+	 */
+	private final double distanceDeviation;
+
+	/**
+	 * Elkészíti a modellt a tanítóhalmaz sablonjaiból.
+	 * @param templates sablonok szakaszok száma szerint
+	 * @param globalTemplate globális sablon
+	 * @param distanceEngine a sablontól mért távolság számítása
+	 * @param averageDistance átlagos távolság
+	 * @param distanceDeviation távolságok szórása
+	 */
+	EnrolledModel(Map<Integer, TemplateSignature> templates, GlobalTemplateSignature globalTemplate, DistanceEngine distanceEngine, double averageDistance, double distanceDeviation) {
+		Map<Integer, FrozenTemplate> frozen = new HashMap<Integer, FrozenTemplate>();
+		for ( Map.Entry<Integer, TemplateSignature> entry : templates.entrySet() )
+			frozen.put(entry.getKey(), freeze(entry.getValue()));
+
+		this.templates = Collections.unmodifiableMap(frozen);
+		this.globalTemplate = new FrozenTemplate(new TimeSeries[] { copyOf(globalTemplate.getWholeSignature()) }, new double[][] { copyOf(globalTemplate.getPointWeightsArray()) }, globalTemplate.getTotalTime());
+		this.distanceEngine = distanceEngine;
+		this.averageDistance = averageDistance;
+		this.distanceDeviation = distanceDeviation;
+	}
+
+	public double getAverageDistance() {
+		return averageDistance;
+	}
+
+	public double getDistanceDeviation() {
+		return distanceDeviation;
+	}
+
+	/**
+	 * Kiszámítja egy aláírás és a hozzá tartozó sablon távolságát, ugyanúgy, mint az
+	 * ImprovedTrainingSet.calcDistanceFrom(Signature), de az aláírást nem módosítja.
+	 * @param s vizsgálandó aláírás
+	 * @return távolság
+	 */
+	public double calcDistanceFrom(Signature s) {
+		return calcDistanceFrom(s, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Kiszámítja egy aláírás és a hozzá tartozó sablon távolságát egy korláttal,
+	 * ugyanúgy, mint az ImprovedTrainingSet.calcDistanceFrom(Signature, double),
+	 * de az aláírást nem módosítja: az újramintavételezett szakaszok csak a
+	 * számítás idejére, új idősorként jönnek létre.
+	 * @param s vizsgálandó aláírás
+	 * @param cutoff távolság felső korlátja
+	 * @return távolság, vagy +végtelen, ha nagyobb a korlátnál
+	 */
+	public double calcDistanceFrom(Signature s, double cutoff) {
+		double distance = 0.0;
+		int testSignatureSegmentCount = s.numberOfSegments();
+		int testSignatureTotalTime = s.getTotalTime();
+
+		/* Ha nincs ennyi szakaszból álló aláírás, akkor a globális templatehez hasonlítom. */
+		if ( !this.templates.containsKey(testSignatureSegmentCount) ) {
+			FrozenTemplate template = this.globalTemplate;	//aktuális template, amihez hasonlítok
+			TimeSeries resampled = s.resampleGivenSegment(s.getWholeSignature(), template.segments[0].size());	//újramintavételezzük a kapott aláírást
+			double factor = (Math.abs(testSignatureTotalTime-template.totalTime)) / (double)template.totalTime;	//szegmens távolsága az írási idők figyelembe vételével
+			double segmentDistance = segmentDistance(template, 0, resampled, ImprovedTrainingSet.segmentCutoff(cutoff, distance, factor));	//a szegmens távolsága
+
+			segmentDistance *= (1+factor);
+
+			distance += segmentDistance;	//az össz távolságot frissítjük
+		} else {
+			FrozenTemplate template = this.templates.get(testSignatureSegmentCount);	//aktuális template, amihez hasonlítok
+			double factor = (Math.abs(testSignatureTotalTime-template.totalTime)) / (double)template.totalTime;	//szegmens távolsága az írási idők figyelembe vételével
+
+			//Szegmensenként kell számítani a távolságot, majd a végén ezeket összegezni.
+			for ( int i = 0 ; i < testSignatureSegmentCount ; i++ ) {
+				if ( !s.isPendownSegment(i) )	//az algoritmusunk csak az író szakaszokat veszi figyelembe
+					continue;
+				if ( distance > cutoff )	//már biztosan túlléptük a korlátot
+					break;
+
+				TimeSeries resampled = s.resampleGivenSegment(s.getSegment(i), template.segments[i].size());	//újramintavételezzük a kapott aláírás szakaszát
+				double segmentDistance = segmentDistance(template, i, resampled, ImprovedTrainingSet.segmentCutoff(cutoff, distance, factor));	//a szegmens távolsága
+
+				segmentDistance *= (1+factor);
+
+				distance += segmentDistance;	//az össz távolságot frissítjük
+			}
+		}
+		return (distance > cutoff) ? Double.POSITIVE_INFINITY : distance;
+	}
+
+	/**
+	 * Egy sablonszakasz és egy újramintavételezett szakasz távolsága egy korláttal. A
+	 * FastImprovedDTWEngine a sablonszakasz tárolt PAA piramisával számol (az eredmény
+	 * ugyanaz, mint a piramis nélkül), a többi algoritmus a szakasszal és a pontsúlyokkal.
+	 * @param template sablon
+	 * @param i szakasz sorszáma
+	 * @param segment az újramintavételezett szakasz
+	 * @param cutoff a szakasz távolságának felső korlátja
+	 * @return távolság, vagy +végtelen, ha nagyobb a korlátnál
+	 */
+	private double segmentDistance(FrozenTemplate template, int i, TimeSeries segment, double cutoff) {
+		if ( this.distanceEngine instanceof FastImprovedDTWEngine ) {
+			double distance = ((FastImprovedDTWEngine)this.distanceEngine).getWarpInfoBetween(template.getPyramid(i), segment).getDistance();
+			return (distance > cutoff) ? Double.POSITIVE_INFINITY : distance;	//a pontsúlyokat a FastImprovedDTW nem használja
+		}
+		return this.distanceEngine.getWarpDistBetween(template.segments[i], segment, template.pointWeights[i], cutoff);
+	}
+
+	/**
+	 * Lemásol egy sablont: a szakaszait és azok pontsúlyait.
+	 * @param template sablon
+	 * @return a másolat
+	 */
+	private static FrozenTemplate freeze(TemplateSignature template) {
+		TimeSeries[] segments = new TimeSeries[template.numberOfSegments()];
+		double[][] pointWeights = new double[template.numberOfSegments()][];
+		for ( int i = 0 ; i < template.numberOfSegments() ; i++ ) {
+			segments[i] = copyOf(template.getSegment(i));
+			pointWeights[i] = copyOf(template.getSegmentPointWeightsArray(i));
+		}
+		return new FrozenTemplate(segments, pointWeights, template.getTotalTime());
+	}
+
+	/**
+	 * Egy idősor mély másolata (a pontokat is lemásolja, lásd TimeSeries.copy(TimeSeries)).
+	 * @param ts idősor
+	 * @return a másolat
+	 */
+	private static TimeSeries copyOf(TimeSeries ts) {
+		TimeSeries copy = new TimeSeries(ts.numOfDimensions());
+		copy.copy(ts);
+		return copy;
+	}
+
+	private static double[] copyOf(double[] array) {
+		return (array == null) ? null : array.clone();
+	}
+
+}
@@ -1,9 +1,17 @@
 package training;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.dtw.DistanceEngine;
+import com.dtw.FastImprovedDTWEngine;
+import com.dtw.ImprovedDTWEngine;
+import com.util.Parallel;
 
 import signature.GlobalTemplateSignature;
 import signature.Signature;
@@ -20,6 +28,11 @@ import signature.TemplateSignature;
  */
 public class ImprovedTrainingSet {
 	
+	/**
+	 * A szakaszonkénti távolságkorlát ráhagyása a teljes korlát arányában (lásd segmentCutoff).
+	 */
+	private static final double CUTOFF_SLACK = 1e-9;
+	
 	/**
 	 * Egy aláíróhoz tartozó összes aláírás.
 	 */
@@ -53,6 +66,27 @@ public class ImprovedTrainingSet {
 	 */
 	private double[] coordWeights;
 	
+	/**
+	 * Az aláírások sablonokhoz illesztésére (a sablonok készítésére) használt algoritmus.
+	 */
+	private DistanceEngine templateEngine;
+	
+	/**
+	 * Az aláírások és a sablonok távolságának számítására használt algoritmus.
+	 */
+	private DistanceEngine distanceEngine;
+	
+	/**
+	 * A sablonok párhuzamos készítéséhez használt szálakat adja (null esetén
+	 * minden a hívó szálon, egymás után készül).
+	 */
+	private Executor executor;
+	
+	/**
+	 * Ha igaz, a távolságszámítás az aláírás szakaszait párhuzamosan dolgozza fel.
+	 */
+	private boolean parallelDistance;
+	
 	/**
 	 * Az aláírások átlagos eltérése a saját templatejüktől.
 	 */
@@ -128,10 +162,62 @@ public class ImprovedTrainingSet {
 	 * @param coordWeights koordináta súlyok
 	 */
 	public ImprovedTrainingSet(double[] coordWeights) {
+		this(coordWeights, new FastImprovedDTWEngine(coordWeights), new ImprovedDTWEngine(coordWeights));
+	}
+	
+	/**
+	 * Konstruktor, mely a koordináták súlya mellett a használt algoritmusokat
+	 * is megkapja. Alapértelmezésben a sablonok a FastImprovedDTW illesztési útvonalaiból
+	 * készülnek, a távolságot pedig a teljes ImprovedDTW számítja (pl. a PrunedDTWEngine
+	 * ugyanazt a távolságot adja gyorsabban). Mindkét algoritmusnak ugyanazokkal a
+	 * koordináta súlyokkal kell számolnia, mint a tanítóhalmaznak (a súlyokat nem
+	 * ismerő DTWEngine és FastDTWEngine ezért nem használható).
+	 * @param coordWeights koordináta súlyok
+	 * @param templateEngine a sablonok készítésekor használt illesztés
+	 * @param distanceEngine a sablontól mért távolság számítása
+	 * @throws IllegalArgumentException ha egy algoritmus koordináta súlyai eltérnek
+	 */
+	public ImprovedTrainingSet(double[] coordWeights, DistanceEngine templateEngine, DistanceEngine distanceEngine) {
+		checkCoordWeights(coordWeights, templateEngine);
+		checkCoordWeights(coordWeights, distanceEngine);
 		signatures = new ArrayList<Signature>();
 		templates = new HashMap<Integer, TemplateSignature>();
 		sigsByStrokeNum = new HashMap<Integer, ArrayList<Signature>>();
 		this.coordWeights = coordWeights;
+		this.templateEngine = templateEngine;
+		this.distanceEngine = distanceEngine;
+		this.executor = Parallel.getDefaultExecutor();
+	}
+	
+	/**
+	 * Ellenőrzi, hogy az algoritmus a megadott koordináta súlyokkal számol-e.
+	 * @param coordWeights a tanítóhalmaz koordináta súlyai
+	 * @param engine az ellenőrizendő algoritmus
+	 * @throws IllegalArgumentException ha a súlyok eltérnek
+	 */
+	private static void checkCoordWeights(double[] coordWeights, DistanceEngine engine) {
+		if ( !Arrays.equals(coordWeights, engine.getCoordWeights()) )
+			throw new IllegalArgumentException("A(z) " + engine.getClass().getSimpleName() + " koordináta súlyai ("
+					+ Arrays.toString(engine.getCoordWeights()) + ") eltérnek a tanítóhalmazéitól (" + Arrays.toString(coordWeights) + ").");
+	}
+	
+	/**
+	 * Beállítja a sablonok párhuzamos készítéséhez használt Executort. A különböző
+	 * szakaszszámú sablonok és egy sablonon belül a szakaszok illesztése is ezen fut.
+	 * @param executor a szálakat adó Executor (null esetén minden egymás után készül)
+	 */
+	public void setExecutor(Executor executor) {
+		this.executor = executor;
+	}
+	
+	/**
+	 * Beállítja, hogy a sablontól mért távolság számítása (calcDistanceFrom) az aláírás
+	 * szakaszait párhuzamosan, a beállított Executor szálain dolgozza-e fel. Sok szakaszból
+	 * álló aláírásoknál érdemes bekapcsolni, az eredmény ugyanaz marad.
+	 * @param parallelDistance igaz esetén párhuzamosan számol
+	 */
+	public void setParallelDistance(boolean parallelDistance) {
+		this.parallelDistance = parallelDistance;
 	}
 	
 	/**
@@ -175,35 +261,22 @@ public class ImprovedTrainingSet {
 	 * Elkészíti minden szakasz számú aláíráshoz tartozó template aláírást.
 	 */
 	public void makeTemplates() {
-			Set<Integer> strokeNumbers = sigsByStrokeNum.keySet();	//lekérjük a szakasz darabszámokat
+			/*
+			 * A különböző szakaszszámú sablonok különböző aláírásokból készülnek, ezért
+			 * párhuzamosan is elkészíthetők. A globális sablon az összes aláírást használja
+			 * (a sablonok pontjai az első aláírásuk pontjai), ezért csak utánuk készülhet el.
+			 */
+			final Integer[] strokeNumbers = sigsByStrokeNum.keySet().toArray(new Integer[0]);	//lekérjük a szakasz darabszámokat
+			final TemplateSignature[] strokeTemplates = new TemplateSignature[strokeNumbers.length];
 			int signatureAverageLength = 0;	//globális aláírás idő átlag
-			for ( Integer sn : strokeNumbers ) {
-				
-				ArrayList<Signature> signs = sigsByStrokeNum.get(sn);	//lekérjük az ennyi szakaszból álló aláírásokat
-				int[] strokeAverageLength = new int[sn];	//ebben tároljuk majd az egyes szakaszok átlag hosszát
-				
-				for ( Signature sig : signs )	//minden aláírásra
-					for ( int i = 0 ; i < sn ; i++ )	//minden szakaszra
-						strokeAverageLength[i] += sig.getSegment(i).size();
-					
-				for ( int i = 0 ; i < sn ; i++ ) 
-					strokeAverageLength[i] /= signs.size();
-				
-				/* 
-				 * Az első aláírást még itt újramintavételezzük az átlagos szakaszhosszok alapján.
-				 * A többit már a templatekészítéskor fogjuk ez alapján.
-				 */
-				for ( int i = 0 ; i < sn ; i++ )	//minden szakaszra
-					signs.get(0).resampleSegment(i, strokeAverageLength[i]);
-				
-				TemplateSignature t = new TemplateSignature(this.coordWeights);
-				for ( Signature sig : signs )	//minden aláírásra
-					t.addSignature(sig);
-				
-				this.templates.put(sn, t);	//végül betesszük, hogy könnyen kereshető legyen
-				t.calculatePointConsistency();
-				t.calculatePointWeights();
-			} 
+			Parallel.forEach(strokeNumbers.length, new Parallel.IndexedTask() {
+				public void run(int index) {
+					strokeTemplates[index] = makeTemplate(strokeNumbers[index]);
+				}
+			}, this.executor, Parallel.getDefaultParallelism());
+			
+			for ( int index = 0 ; index < strokeNumbers.length ; index++ )
+				this.templates.put(strokeNumbers[index], strokeTemplates[index]);	//végül betesszük, hogy könnyen kereshető legyen
 			
 			
 			for (Signature sig : signatures )	//teljes idő átlaga
@@ -212,7 +285,7 @@ public class ImprovedTrainingSet {
 			signatureAverageLength /= signatures.size();
 			
 			signatures.get(0).resampleWholeSignature(signatureAverageLength);
-			globalTemplate = new GlobalTemplateSignature(this.coordWeights);
+			globalTemplate = new GlobalTemplateSignature(this.coordWeights, this.templateEngine);
 			
 			for (Signature sig : signatures )	//teljes idő átlaga
 				globalTemplate.addSignature(sig);
@@ -225,6 +298,48 @@ public class ImprovedTrainingSet {
 			calcDistanceDeviation();
 	}
 	
+	/**
+	 * Elkészíti a tanítóhalmaz változtathatatlan pillanatképét (a sablonok másolatát és a
+	 * távolságstatisztikákat), amellyel több szálból, az aláírások módosítása nélkül
+	 * számolható a sablontól mért távolság. A makeTemplates() után hívható.
+	 * @return a betanított modell
+	 */
+	public EnrolledModel freeze() {
+		return new EnrolledModel(this.templates, this.globalTemplate, this.distanceEngine, this.averageDistance, this.distanceDeviation);
+	}
+	
+	/**
+	 * Elkészíti az adott szakasz számú aláírásokhoz tartozó template aláírást.
+	 * @param sn szakaszok száma
+	 * @return a sablon
+	 */
+	private TemplateSignature makeTemplate(int sn) {
+		ArrayList<Signature> signs = sigsByStrokeNum.get(sn);	//lekérjük az ennyi szakaszból álló aláírásokat
+		int[] strokeAverageLength = new int[sn];	//ebben tároljuk majd az egyes szakaszok átlag hosszát
+		
+		for ( Signature sig : signs )	//minden aláírásra
+			for ( int i = 0 ; i < sn ; i++ )	//minden szakaszra
+				strokeAverageLength[i] += sig.getSegment(i).size();
+			
+		for ( int i = 0 ; i < sn ; i++ ) 
+			strokeAverageLength[i] /= signs.size();
+		
+		/* 
+		 * Az első aláírást még itt újramintavételezzük az átlagos szakaszhosszok alapján.
+		 * A többit már a templatekészítéskor fogjuk ez alapján.
+		 */
+		for ( int i = 0 ; i < sn ; i++ )	//minden szakaszra
+			signs.get(0).resampleSegment(i, strokeAverageLength[i]);
+		
+		TemplateSignature t = new TemplateSignature(this.coordWeights, this.templateEngine, this.executor);
+		for ( Signature sig : signs )	//minden aláírásra
+			t.addSignature(sig);
+		
+		t.calculatePointConsistency();
+		t.calculatePointWeights();
+		return t;
+	}
+	
 	/**
 	 * Kiszámítja a tanítóhalmaz aláírásai és a hozzájuk tartozó sablon közötti távolságok
 	 * szórását. A szórás az átlagtól vett eltérés négyzetösszege leosztva az elemek számával.
@@ -274,6 +389,21 @@ public class ImprovedTrainingSet {
 	 * @return távolság
 	 */
 	public double calcDistanceFrom(Signature s) {
+		return calcDistanceFrom(s, Double.POSITIVE_INFINITY);
+	}
+	
+	/**
+	 * Kiszámítja egy kapott aláírás és a hozzá tartozó sablon aláírás
+	 * távolságát, de csak addig, amíg ki nem derül, hogy az meghaladja
+	 * a megadott korlátot. Ilyenkor +végtelen a visszatérési érték, egyébként
+	 * pontosan ugyanannyi, mint a korlát nélküli változaté. Az aláírás
+	 * szakaszait a korláttól függetlenül mindig újramintavételezi, hogy az
+	 * aláírás állapota ugyanaz maradjon, mint a teljes számítás után.
+	 * @param s vizsgálandó aláírás
+	 * @param cutoff távolság felső korlátja
+	 * @return távolság, vagy +végtelen, ha nagyobb a korlátnál
+	 */
+	public double calcDistanceFrom(Signature s, double cutoff) {
 		double distance = 0.0;
 		int testSignatureSegmentCount = s.numberOfSegments();
 		int testSignaturePenDownTime = s.getTotalPenDownTime();	//lekérjük még újramintavételezés előtt az egyes időket
@@ -286,8 +416,8 @@ public class ImprovedTrainingSet {
 			int newLength = template.getWholeSignature().size();	//aláírás mérete, ami szerint újra kell mintavételezni
 			
 			s.resampleWholeSignature(newLength);	//újramintavételezzük a kapott aláírást
-			double segmentDistance = com.dtw.ImprovedDTW.getWarpDistBetween(template.getWholeSignature(), s.getWholeSignature(), this.coordWeights, template.getPointWeightsArray());	//a szegmens távolsága
 			double factor = (Math.abs(testSignatureTotalTime-template.getTotalTime())) / (double)template.getTotalTime();	//szegmens távolsága az írási idők figyelembe vételével
+			double segmentDistance = this.distanceEngine.getWarpDistBetween(template.getWholeSignature(), s.getWholeSignature(), template.getPointWeightsArray(), segmentCutoff(cutoff, distance, factor));	//a szegmens távolsága
 			
 			segmentDistance *= (1+factor);
 			
@@ -295,6 +425,9 @@ public class ImprovedTrainingSet {
 			//distance = Double.MAX_VALUE;
 		} else {
 			//Szegmensenként kell számítani a távolságot, majd a végén ezeket összegezni.
+			if ( this.parallelDistance )
+				return calcSegmentDistancesInParallel(s, this.templates.get(testSignatureSegmentCount), testSignatureTotalTime, cutoff);
+			
 			for ( int i = 0 ; i < testSignatureSegmentCount ; i++ ) {
 				if ( !s.isPendownSegment(i) )	//az algoritmusunk csak az író szakaszokat veszi figyelembe
 					continue;
@@ -303,17 +436,86 @@ public class ImprovedTrainingSet {
 				int newLength = template.getSegment(i).size();	//szegmens mérete, ami szerint újra kell mintavételezni
 				
 				s.resampleSegment(i, newLength);	//újramintavételezzük a kapott aláírást
-				double segmentDistance = com.dtw.ImprovedDTW.getWarpDistBetween(template.getSegment(i), s.getSegments().get(i), this.coordWeights, template.getSegmentPointWeightsArray(i));	//a szegmens távolsága
+				if ( distance > cutoff )	//már biztosan túlléptük a korlátot, a többi szakaszt csak újramintavételezzük
+					continue;
+				
 				double factor = (Math.abs(testSignatureTotalTime-template.getTotalTime())) / (double)template.getTotalTime();	//szegmens távolsága az írási idők figyelembe vételével
+				double segmentDistance = this.distanceEngine.getWarpDistBetween(template.getSegment(i), s.getSegments().get(i), template.getSegmentPointWeightsArray(i), segmentCutoff(cutoff, distance, factor));	//a szegmens távolsága
 				
 				segmentDistance *= (1+factor);
 				
 				distance += segmentDistance;	//az össz távolságot frissítjük
 			}
 		}
-		return distance;
+		return (distance > cutoff) ? Double.POSITIVE_INFINITY : distance;
 	}
 	
+	/**
+	 * A calcDistanceFrom(Signature, double) szakaszonkénti számítása párhuzamosan: a szakaszok
+	 * távolságát az Executor szálain számolja. A már kiszámolt szakaszok távolságának összegét
+	 * a szálak megosztják, így amint az meghaladja a korlátot, a még el nem kezdett szakaszokat
+	 * csak újramintavételezzük, a többi szakasz korlátja pedig az összeggel csökken. A végén a
+	 * szakaszok távolságát a soros változattal azonos sorrendben adjuk össze, így az eredmény
+	 * (a távolság, vagy +végtelen) megegyezik a soros számításéval.
+	 * @param s vizsgálandó aláírás
+	 * @param template az aláírással azonos szakaszszámú sablon
+	 * @param testSignatureTotalTime az aláírás teljes írási ideje (újramintavételezés előtt)
+	 * @param cutoff távolság felső korlátja
+	 * @return távolság, vagy +végtelen, ha nagyobb a korlátnál
+	 */
+	private double calcSegmentDistancesInParallel(final Signature s, final TemplateSignature template, int testSignatureTotalTime, final double cutoff) {
+		final int testSignatureSegmentCount = s.numberOfSegments();
+		final double factor = (Math.abs(testSignatureTotalTime-template.getTotalTime())) / (double)template.getTotalTime();	//szegmens távolsága az írási idők figyelembe vételével
+		final double[] segmentDistances = new double[testSignatureSegmentCount];	//szakaszok távolsága (szorzóval)
+		final AtomicLong finishedDistance = new AtomicLong(Double.doubleToLongBits(0.0));	//a kész szakaszok távolságának összege
+		
+		Parallel.forEach(testSignatureSegmentCount, new Parallel.IndexedTask() {
+			public void run(int i) {
+				if ( !s.isPendownSegment(i) )	//az algoritmusunk csak az író szakaszokat veszi figyelembe
+					return;
+				
+				s.resampleSegment(i, template.getSegment(i).size());	//újramintavételezzük a kapott aláírást
+				double partialDistance = Double.longBitsToDouble(finishedDistance.get());
+				if ( partialDistance > cutoff ) {	//már biztosan túlléptük a korlátot, a szakaszt csak újramintavételezzük
+					segmentDistances[i] = Double.POSITIVE_INFINITY;
+					return;
+				}
+				
+				double segmentDistance = distanceEngine.getWarpDistBetween(template.getSegment(i), s.getSegments().get(i), template.getSegmentPointWeightsArray(i), segmentCutoff(cutoff, partialDistance, factor));	//a szegmens távolsága
+				segmentDistance *= (1+factor);
+				segmentDistances[i] = segmentDistance;
+				
+				/* Hozzáadjuk a közös összeghez. */
+				long current;
+				do {
+					current = finishedDistance.get();
+				} while ( !finishedDistance.compareAndSet(current, Double.doubleToLongBits(Double.longBitsToDouble(current) + segmentDistance)) );
+			}
+		}, this.executor, Parallel.getDefaultParallelism());
+		
+		double distance = 0.0;
+		for ( int i = 0 ; i < testSignatureSegmentCount ; i++ )
+			if ( s.isPendownSegment(i) )
+				distance += segmentDistances[i];	//az össz távolságot a soros számítás sorrendjében frissítjük
+		
+		return (distance > cutoff) ? Double.POSITIVE_INFINITY : distance;
+	}
 	
+	/**
+	 * Kiszámítja, hogy egy szakasz (szorzó előtti) távolsága legfeljebb mennyi
+	 * lehet ahhoz, hogy az összes távolság ne lépje túl a korlátot. A korlátot
+	 * kicsit megnöveljük, hogy a kerekítési hibák miatt ne hagyjuk abba túl korán
+	 * a számítást: a korlát alatti távolságokat a hívó úgyis pontosan ellenőrzi.
+	 * Az összegek kerekítési hibája a korláttal arányos (a párhuzamos számítás más
+	 * sorrendben összegez), ezért a ráhagyás is a teljes korláttal arányos, nem a
+	 * maradékkal.
+	 * @param cutoff a teljes távolság korlátja
+	 * @param distance az eddigi szakaszok távolságának összege
+	 * @param factor az írási idők eltéréséből adódó szorzó
+	 * @return a szakasz távolságának korlátja
+	 */
+	static double segmentCutoff(double cutoff, double distance, double factor) {
+		return (cutoff - distance + Math.abs(cutoff)*CUTOFF_SLACK) / (1+factor);
+	}
 	
 }
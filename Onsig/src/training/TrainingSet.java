@@ -1,7 +1,13 @@
 package training;
 
-import com.dtw.TimeWarpInfo;
+import com.dtw.DistanceEngine;
+import com.dtw.Envelope;
+import com.dtw.FastDTWEngine;
+import com.dtw.PairwiseDistances;
+import com.timeseries.TimeSeries;
+import com.util.Parallel;
 import java.util.ArrayList;
+import java.util.concurrent.Executor;
 
 /**
  * Egy tanítóhalmazt reprezentáló osztály.
@@ -15,6 +21,7 @@ public class TrainingSet {
     private ArrayList<signature.Signature> trainingSet;   //tanítóhalmaz elemei
     private double avgpenUpTime;  //átlagos idő, amíg a toll fel volt emelve
     private double avgpenDownTime;  //átlagos idő, amíg a tollal írtunk: az előző és ez adja az össz írás időt
+    private ArrayList<Envelope> envelopes;  //a tanítóhalmaz elemeinek burkolói a távolság alsó becsléséhez
 
     /**
      * A konstruktor a kapott aláírások idősoraiból kiszámítja a tanítóhalmaz
@@ -23,25 +30,54 @@ public class TrainingSet {
      * @param window - ablakméret
      */
     public TrainingSet(ArrayList<signature.Signature> t, int window){
-            distanceMatrix = new double[t.size()][t.size()];
+            this(t, new FastDTWEngine(window));
+    }
+
+    /**
+     * A konstruktor a kapott aláírások idősoraiból a megadott távolságszámítással
+     * (pl. PrunedDTWEngine) számítja ki a tanítóhalmaz távolságmátrixát.
+     * @param t - idősorok
+     * @param engine - távolságszámító algoritmus
+     */
+    public TrainingSet(ArrayList<signature.Signature> t, DistanceEngine engine){
+            this(t, engine, Parallel.getDefaultExecutor());
+    }
+
+    /**
+     * A konstruktor a kapott aláírások idősoraiból a megadott távolságszámítással
+     * számítja ki a tanítóhalmaz távolságmátrixát. A páronkénti távolságokat a
+     * megadott Executor szálain párhuzamosan számolja (lásd PairwiseDistances),
+     * a legkisebb, legnagyobb és átlagos távolságot utána, a mátrix sorrendjében
+     * összesíti, így az eredmény független a szálak számától.
+     * @param t - idősorok
+     * @param engine - távolságszámító algoritmus (több szálból is használható)
+     * @param executor - a szálakat adó Executor (null esetén a hívó szálon számol)
+     */
+    public TrainingSet(ArrayList<signature.Signature> t, DistanceEngine engine, Executor executor){
             trainingSet = t;
             double elements = 0;
             calculateAverageTimes();
+            calculateEnvelopes();
+
+            ArrayList<TimeSeries> wholeSignatures = new ArrayList<TimeSeries>(t.size());
+            for ( int i = 0 ; i < t.size() ; i++) {
+                wholeSignatures.add(t.get(i).getWholeSignature());
+            }
+            distanceMatrix = PairwiseDistances.lowerTriangle(wholeSignatures, engine, executor, Parallel.getDefaultParallelism());
             
             for ( int i = 0 ; i < t.size() ; i++) {
                 for ( int j = 0 ; j < i ; j++ ) {
-                    final TimeWarpInfo info = com.dtw.FastDTW.getWarpInfoBetween(t.get(i).getWholeSignature(), t.get(j).getWholeSignature(), window);
-                    distanceMatrix[i][j] = info.getDistance();
+                    final double distance = distanceMatrix[i][j];
                     if ( i == 1 && j == 0 ) {
-                        minDistance = maxDistance = info.getDistance();
+                        minDistance = maxDistance = distance;
                     }
-                    if ( minDistance > info.getDistance() ) {
-                        minDistance = info.getDistance();
-                    } else if ( maxDistance < info.getDistance() ) {
-                        maxDistance = info.getDistance();
+                    if ( minDistance > distance ) {
+                        minDistance = distance;
+                    } else if ( maxDistance < distance ) {
+                        maxDistance = distance;
                     }
                     elements++;
-                    averageDistance += info.getDistance();
+                    averageDistance += distance;
                 }
             }
 
@@ -86,6 +122,15 @@ public class TrainingSet {
         return trainingSet;
     }
 
+    /**
+     * Visszaadja a tanítóhalmaz egy elemének burkolóját.
+     * @param i az elem indexe
+     * @return az i. elem teljes aláírásának burkolója
+     */
+    public Envelope getEnvelope(int i) {
+        return envelopes.get(i);
+    }
+
     public void printMatrix() {
         for ( int i = 0 ; i < distanceMatrix.length ; i++ ){
             for ( int j = 0 ; j < i ; j++ ) {
@@ -114,5 +159,16 @@ public class TrainingSet {
         
     }
 
+    /**
+     * Elkészíti a tanítóhalmaz elemeinek burkolóit. Ezekkel az osztályozó
+     * a teljes DTW számítás nélkül is kizárhat elemeket.
+     */
+    private void calculateEnvelopes() {
+        this.envelopes = new ArrayList<Envelope>(this.trainingSet.size());
+        for ( int i = 0 ; i < this.trainingSet.size() ; i++ ){
+            this.envelopes.add(new Envelope(this.trainingSet.get(i).getWholeSignature()));
+        }
+    }
+
 
 }